@@ -0,0 +1,63 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Compares columnar batch evaluation with row at a time evaluation of the same query over one million rows.
+ */
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+    record Row(long age, double score, String city) {
+    }
+
+    static final int ROWS = 1_000_000;
+    static final String QUERY = "age gte: 30 && age lt: 40 && (score gt: 50 || city IN: [\"c1\", \"c2\", \"c3\"])";
+
+    Row[] rows;
+    CompiledQuery<Row> rowQuery;
+    ColumnarQuery columnarQuery;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        rows = new Row[ROWS];
+        long[] ages = new long[ROWS];
+        double[] scores = new double[ROWS];
+        Object[] cities = new Object[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            ages[i] = random.nextInt(100);
+            scores[i] = random.nextDouble() * 100;
+            cities[i] = "c" + random.nextInt(50);
+            rows[i] = new Row(ages[i], scores[i], (String) cities[i]);
+        }
+        ColumnarTable table = new ColumnarTable(ROWS)
+                .withLongs("age", ages)
+                .withDoubles("score", scores)
+                .withObjects("city", cities);
+        Expr expr = new Parser(new Tokenizer(QUERY)).parseExpr();
+        rowQuery = new QueryCompiler<>(FieldAccessor.ofRecord(Row.class)).compile(expr);
+        columnarQuery = new ColumnarCompiler(table).compile(expr);
+    }
+
+    @Benchmark
+    public int rowAtATime() {
+        int matches = 0;
+        for (Row row : rows) {
+            if (rowQuery.test(row)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int columnar() {
+        return columnarQuery.count();
+    }
+}
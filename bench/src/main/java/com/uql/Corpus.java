@@ -0,0 +1,76 @@
+package com.uql;
+
+import java.util.Random;
+
+/**
+ * Generated queries of the shapes the benchmarks run on, over the keys of {@link Corpus.Row}.
+ */
+final class Corpus {
+
+    record Row(long id, String city, long age, String status) {
+    }
+
+    static final String[] NAMES = {"SINGLE", "CHAIN_50", "DEEP_PARENTHESES", "IN_10K"};
+
+    private Corpus() {
+    }
+
+    static String query(String name) {
+        Random random = new Random(42);
+        return switch (name) {
+            case "SINGLE" -> "city eq: \"city7\"";
+            case "CHAIN_50" -> chain(random, 50);
+            case "DEEP_PARENTHESES" -> deep(random, 200);
+            case "IN_10K" -> in(random, 10_000);
+            default -> throw new IllegalArgumentException("Unknown corpus " + name);
+        };
+    }
+
+    static Row[] rows(int count) {
+        Random random = new Random(7);
+        Row[] rows = new Row[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Row(i, "city" + random.nextInt(50), random.nextInt(100),
+                    random.nextInt(20) == 0 ? "failed" : "ok");
+        }
+        return rows;
+    }
+
+    /**
+     * A chain of comparisons joined by {@code &&} and {@code ||}.
+     */
+    private static String chain(Random random, int terms) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                builder.append(random.nextInt(3) == 0 ? " || " : " && ");
+            }
+            builder.append(term(random));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A short chain wrapped in {@code depth} parentheses, {@code ((((a && b || c))))}.
+     */
+    private static String deep(Random random, int depth) {
+        return "(".repeat(depth) + chain(random, 4) + ")".repeat(depth);
+    }
+
+    private static String in(Random random, int size) {
+        StringBuilder builder = new StringBuilder("id IN: [");
+        for (int i = 0; i < size; i++) {
+            builder.append(i > 0 ? ", " : "").append(random.nextInt(1_000_000));
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String term(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> "city eq: \"city" + random.nextInt(50) + "\"";
+            case 1 -> "age gt: " + random.nextInt(100);
+            case 2 -> "status not: \"ok\"";
+            default -> "id IN: [" + random.nextInt(1000) + ", " + random.nextInt(1000) + "]";
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Contention benchmark of a single {@link UqlEngine} shared by every benchmark thread, next to a new tokenizer and
+ * parser per query. Run it with an increasing thread count to see how it scales, e.g. {@code -t 1}, {@code -t 4}
+ * and {@code -t max}.
+ */
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    @Param({"SINGLE", "CHAIN_50"})
+    String corpus;
+
+    String query;
+    UqlEngine engine;
+
+    @Setup
+    public void setUp() {
+        query = Corpus.query(corpus);
+        engine = new UqlEngine();
+    }
+
+    @Benchmark
+    public Expr sharedEngine() {
+        return engine.parse(query);
+    }
+
+    @Benchmark
+    public Expr newParser() {
+        return new Parser(new Tokenizer(query)).parseExpr();
+    }
+}
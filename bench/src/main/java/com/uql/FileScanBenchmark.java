@@ -0,0 +1,71 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures the throughput of {@link FileScanner} over a generated NDJSON file. The {@code bytes} secondary result is
+ * the scanned bytes per second.
+ */
+@State(Scope.Benchmark)
+public class FileScanBenchmark {
+
+    static final String QUERY = "age gte: 30 && age lt: 40 && city IN: [\"c1\", \"c2\", \"c3\"]";
+
+    @Param("256")
+    long megabytes;
+
+    Path file;
+    long size;
+    Expr expr;
+    FileScanner scanner;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Scanned {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("uql-scan", ".ndjson");
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            long written = 0;
+            for (long id = 0; written < megabytes << 20; id++) {
+                String line = "{\"id\": " + id + ", \"city\": \"c" + random.nextInt(50) + "\", \"age\": "
+                        + random.nextInt(100) + ", \"email\": \"user" + id + "@example.com\", \"tags\": [\"a\", \"b\"]}\n";
+                writer.write(line);
+                written += line.length();
+            }
+        }
+        size = Files.size(file);
+        expr = new Parser(new Tokenizer(QUERY)).parseExpr();
+        scanner = FileScanner.ndjson(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long scan(Scanned scanned) {
+        scanned.bytes += size;
+        return scanner.scan(expr, record -> {
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of {@link QueryMetrics} on parsing a single filter, the phase where it weighs the most.
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    boolean enabled;
+
+    String query;
+
+    @Setup
+    public void setUp() {
+        query = Corpus.query("SINGLE");
+        QueryMetrics.global().setEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        QueryMetrics.global().setEnabled(false);
+    }
+
+    @Benchmark
+    public Expr parseExpr() {
+        return new Parser(new Tokenizer(query)).parseExpr();
+    }
+}
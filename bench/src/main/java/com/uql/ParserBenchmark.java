@@ -0,0 +1,41 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parses each corpus into the {@link Node} tree, the {@link Expr} tree and a reused {@link FlatTree}.
+ */
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param({"SINGLE", "CHAIN_50", "DEEP_PARENTHESES", "IN_10K"})
+    String corpus;
+
+    String query;
+    FlatParser flatParser;
+
+    @Setup
+    public void setUp() {
+        query = Corpus.query(corpus);
+        flatParser = new FlatParser();
+    }
+
+    @Benchmark
+    public Node parse() {
+        return new Parser(new Tokenizer(query)).parse();
+    }
+
+    @Benchmark
+    public Expr parseExpr() {
+        return new Parser(new Tokenizer(query)).parseExpr();
+    }
+
+    @Benchmark
+    public FlatTree parseFlat() {
+        return flatParser.parse(query);
+    }
+}
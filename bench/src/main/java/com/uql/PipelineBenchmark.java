@@ -0,0 +1,51 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Runs the whole pipeline on each corpus: parsing, compiling and filtering 10000 rows, once compiling every time
+ * and once with the query taken from a {@link ShapeCache}.
+ */
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    @Param({"SINGLE", "CHAIN_50", "DEEP_PARENTHESES", "IN_10K"})
+    String corpus;
+
+    String query;
+    Corpus.Row[] rows;
+    QueryCompiler<Corpus.Row> compiler;
+    ShapeCache<Corpus.Row> cache;
+
+    @Setup
+    public void setUp() {
+        query = Corpus.query(corpus);
+        rows = Corpus.rows(10_000);
+        compiler = new QueryCompiler<>(FieldAccessor.ofRecord(Corpus.Row.class));
+        cache = new ShapeCache<>(100, compiler);
+    }
+
+    @Benchmark
+    public int compileAndFilter() {
+        return count(compiler.compile(new Parser(new Tokenizer(query)).parseExpr()));
+    }
+
+    @Benchmark
+    public int cachedAndFilter() {
+        return count(cache.get(query));
+    }
+
+    private int count(java.util.function.Predicate<Corpus.Row> predicate) {
+        int count = 0;
+        for (Corpus.Row row : rows) {
+            if (predicate.test(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
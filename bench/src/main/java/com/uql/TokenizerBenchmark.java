@@ -0,0 +1,46 @@
+package com.uql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Tokenizes each corpus, collecting the tokens like {@link Tokenizer#tokenize()} does or pulling them one by one
+ * with the allocation free {@link Tokenizer#next()}.
+ */
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+
+    @Param({"SINGLE", "CHAIN_50", "DEEP_PARENTHESES", "IN_10K"})
+    String corpus;
+
+    String query;
+    Tokenizer reused;
+
+    @Setup
+    public void setUp() {
+        query = Corpus.query(corpus);
+        reused = new Tokenizer(query);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        Tokenizer tokenizer = new Tokenizer(query);
+        tokenizer.tokenize();
+        return tokenizer.tokens;
+    }
+
+    @Benchmark
+    public int next() {
+        reused.reset(query);
+        int count = 0;
+        while (reused.next() != TokenType.EOF) {
+            count++;
+        }
+        return count;
+    }
+}
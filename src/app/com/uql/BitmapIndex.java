@@ -0,0 +1,96 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Inverted index of a key, mapping each distinct value to the bitmap of the rows holding it. It answers {@code eq:},
+ * {@code not:} and {@code IN:} with the semantics of {@link Comparisons}. Lookups are direct when every value has the
+ * type the literal is compared as; otherwise the distinct values are compared with the literal one by one, which
+ * stays cheap on the low cardinality keys the index is meant for.
+ */
+final class BitmapIndex {
+
+    private final Map<Object, RowBitmap> bitmaps = new HashMap<>();
+    // Rows with a value, the ones not: can match
+    private final RowBitmap present;
+    // Long or String when all values have that type, null otherwise
+    private final Class<?> kind;
+
+    <T> BitmapIndex(List<T> rows, Function<T, Object> getter) {
+        Map<Object, RowBitmap.Builder> builders = new HashMap<>();
+        RowBitmap.Builder present = new RowBitmap.Builder();
+        Class<?> kind = null;
+        boolean mixed = false;
+        for (int row = 0; row < rows.size(); row++) {
+            Object value = getter.apply(rows.get(row));
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                value = ((Number) value).longValue();
+            }
+            if (kind == null && !mixed) {
+                kind = value.getClass();
+            } else if (kind != value.getClass()) {
+                kind = null;
+                mixed = true;
+            }
+            builders.computeIfAbsent(value, v -> new RowBitmap.Builder()).add(row);
+            present.add(row);
+        }
+        builders.forEach((value, builder) -> bitmaps.put(value, builder.build()));
+        this.present = present.build();
+        this.kind = kind == Long.class || kind == String.class ? kind : null;
+    }
+
+    RowBitmap select(ComparisonOperator operator, Object literal) {
+        return switch (operator) {
+            case EQ -> equal(literal);
+            case NOT -> present.andNot(equal(literal));
+            default -> throw new IllegalArgumentException(operator.symbol + " is not answered by a bitmap index");
+        };
+    }
+
+    RowBitmap in(List<Literal> literals) {
+        if (kind != null) {
+            RowBitmap result = RowBitmap.empty();
+            for (Literal literal : literals) {
+                result = result.or(equal(literal.value()));
+            }
+            return result;
+        }
+        return matching(InSet.of(literals));
+    }
+
+    private RowBitmap equal(Object literal) {
+        if (kind == String.class) {
+            return lookup(literal instanceof BigDecimal decimal ? decimal.toPlainString() : literal.toString());
+        }
+        if (kind == Long.class && literal instanceof Long) {
+            return lookup(literal);
+        }
+        ToIntFunction<Object> comparator = Comparisons.comparator(literal);
+        return matching(value -> comparator.applyAsInt(value) == 0);
+    }
+
+    private RowBitmap lookup(Object value) {
+        RowBitmap bitmap = bitmaps.get(value);
+        return bitmap == null ? RowBitmap.empty() : bitmap;
+    }
+
+    private RowBitmap matching(Predicate<Object> predicate) {
+        RowBitmap result = RowBitmap.empty();
+        for (Map.Entry<Object, RowBitmap> entry : bitmaps.entrySet()) {
+            if (predicate.test(entry.getKey())) {
+                result = result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.uql;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Predicate;
+
+/**
+ * Compiles a UQL expression into a class of its own, defined as a hidden class. The generated code has the literals
+ * as constants and the comparisons and {@code &&} / {@code ||} branches inlined, so the JIT can optimize the whole
+ * expression as one method. Hidden classes are not strongly referenced by their class loader: once a compiled query
+ * is no longer used, its class can be unloaded.
+ * <p>
+ * Expressions too large to be JIT compiled as a single method fall back to {@link QueryCompiler}.
+ */
+public final class BytecodeCompiler<T> {
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, Object[].class);
+
+    private final FieldAccessor<T> accessor;
+
+    public BytecodeCompiler(FieldAccessor<T> accessor) {
+        this.accessor = accessor;
+    }
+
+    public CompiledQuery<T> compile(Node tree) {
+        return compile(Expr.of(tree));
+    }
+
+    public CompiledQuery<T> compile(Expr expr) {
+        accessor.check(expr);
+        QueryClassWriter writer = new QueryClassWriter(accessor);
+        byte[] classFile = writer.write(expr);
+        if (classFile == null) {
+            return new QueryCompiler<>(accessor).compile(expr);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            @SuppressWarnings("unchecked")
+            Predicate<T> predicate = (Predicate<T>) lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR)
+                    .invoke(writer.fieldValues());
+            return new CompiledQuery<>(expr, predicate);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not define the class of '" + expr + "'", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.uql;
+
+/**
+ * Snapshot of the counters of a cache.
+ */
+public record CacheStats(long hits, long misses, long evictions) {
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        long requests = requests();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
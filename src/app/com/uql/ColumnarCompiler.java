@@ -0,0 +1,233 @@
+package com.uql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compiles a UQL expression into a {@link ColumnarQuery} over the columns of a table. Comparisons of a primitive
+ * column with an integer literal run as tight loops over the array, which the JIT can unroll and vectorize; any other
+ * comparison boxes the column values and compares them through {@link Comparisons}, with the same semantics as
+ * {@link QueryCompiler}. A key without a column matches no row.
+ */
+public final class ColumnarCompiler {
+
+    private static final ColumnarQuery.Selector NONE = (from, to, out, outWord, scratch) ->
+            Arrays.fill(out, outWord, outWord + words(from, to), 0L);
+
+    private final ColumnarTable table;
+
+    public ColumnarCompiler(ColumnarTable table) {
+        this.table = table;
+    }
+
+    public ColumnarQuery compile(Node tree) {
+        return compile(Expr.of(tree));
+    }
+
+    public ColumnarQuery compile(Expr expr) {
+        return new ColumnarQuery(expr, table, selector(expr, 0), depth(expr));
+    }
+
+    private ColumnarQuery.Selector selector(Expr expr, int depth) {
+        return switch (expr) {
+            case Expr.Logical logical -> logical(logical, depth);
+            case Expr.Comparison comparison -> comparison(comparison);
+            case Expr.In in -> in(in);
+        };
+    }
+
+    private ColumnarQuery.Selector logical(Expr.Logical logical, int depth) {
+        List<Expr> operands = logical.operands();
+        ColumnarQuery.Selector[] selectors = new ColumnarQuery.Selector[operands.size()];
+        for (int i = 0; i < selectors.length; i++) {
+            selectors[i] = selector(operands.get(i), depth + 1);
+        }
+        boolean and = logical.operator() == LogicalOperator.AND;
+        return (from, to, out, outWord, scratch) -> {
+            int words = words(from, to);
+            selectors[0].select(from, to, out, outWord, scratch);
+            long[] operand = scratch[depth];
+            for (int s = 1; s < selectors.length; s++) {
+                if (and && isEmpty(out, outWord, words)) {
+                    return;
+                }
+                selectors[s].select(from, to, operand, 0, scratch);
+                if (and) {
+                    for (int w = 0; w < words; w++) {
+                        out[outWord + w] &= operand[w];
+                    }
+                } else {
+                    for (int w = 0; w < words; w++) {
+                        out[outWord + w] |= operand[w];
+                    }
+                }
+            }
+        };
+    }
+
+    private ColumnarQuery.Selector comparison(Expr.Comparison comparison) {
+        Object column = table.column(comparison.key());
+        if (column == null) {
+            return NONE;
+        }
+        ComparisonOperator operator = comparison.operator();
+        Literal literal = comparison.value();
+        if (literal.type() == Literal.Type.LONG) {
+            long value = literal.longValue();
+            if (column instanceof long[] longs) {
+                return (from, to, out, outWord, scratch) -> selectLongs(longs, operator, value, from, to, out, outWord);
+            }
+            if (column instanceof double[] doubles) {
+                double converted = value;
+                return (from, to, out, outWord, scratch) ->
+                        selectDoubles(doubles, operator, converted, from, to, out, outWord);
+            }
+        }
+        if (literal.type() == Literal.Type.DOUBLE && column instanceof double[] doubles) {
+            double value = literal.doubleValue();
+            return (from, to, out, outWord, scratch) -> selectDoubles(doubles, operator, value, from, to, out, outWord);
+        }
+        IntFunction<Object> values = values(column);
+        ToIntFunction<Object> comparator = Comparisons.comparator(literal);
+        return (from, to, out, outWord, scratch) -> {
+            for (int base = from, word = outWord; base < to; base += 64, word++) {
+                int end = Math.min(base + 64, to);
+                long bits = 0;
+                for (int i = base; i < end; i++) {
+                    if (Comparisons.test(operator, comparator.applyAsInt(values.apply(i)))) {
+                        bits |= 1L << (i - base);
+                    }
+                }
+                out[word] = bits;
+            }
+        };
+    }
+
+    private ColumnarQuery.Selector in(Expr.In in) {
+        Object column = table.column(in.key());
+        if (column == null) {
+            return NONE;
+        }
+        InSet set = InSet.of(in.values());
+        if (column instanceof long[] longs && set.longs().size() == distinctCount(in.values())) {
+            LongSet members = set.longs();
+            return (from, to, out, outWord, scratch) -> {
+                for (int base = from, word = outWord; base < to; base += 64, word++) {
+                    int end = Math.min(base + 64, to);
+                    long bits = 0;
+                    for (int i = base; i < end; i++) {
+                        bits |= (members.contains(longs[i]) ? 1L : 0L) << (i - base);
+                    }
+                    out[word] = bits;
+                }
+            };
+        }
+        IntFunction<Object> values = values(column);
+        Predicate<Object> members = set;
+        return (from, to, out, outWord, scratch) -> {
+            for (int base = from, word = outWord; base < to; base += 64, word++) {
+                int end = Math.min(base + 64, to);
+                long bits = 0;
+                for (int i = base; i < end; i++) {
+                    if (members.test(values.apply(i))) {
+                        bits |= 1L << (i - base);
+                    }
+                }
+                out[word] = bits;
+            }
+        };
+    }
+
+    /**
+     * Counts the distinct literals, to tell whether all of them are integers held by the {@link LongSet}.
+     */
+    private static long distinctCount(List<Literal> literals) {
+        return literals.stream().map(Literal::value).distinct().count();
+    }
+
+    private static void selectLongs(long[] column, ComparisonOperator operator, long literal,
+                                    int from, int to, long[] out, int outWord) {
+        for (int base = from, word = outWord; base < to; base += 64, word++) {
+            int end = Math.min(base + 64, to);
+            long bits = 0;
+            switch (operator) {
+                case EQ -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] == literal ? 1L : 0L) << (i - base);
+                }
+                case NOT -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] != literal ? 1L : 0L) << (i - base);
+                }
+                case GT -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] > literal ? 1L : 0L) << (i - base);
+                }
+                case GTE -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] >= literal ? 1L : 0L) << (i - base);
+                }
+                case LT -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] < literal ? 1L : 0L) << (i - base);
+                }
+                case LTE -> {
+                    for (int i = base; i < end; i++) bits |= (column[i] <= literal ? 1L : 0L) << (i - base);
+                }
+                case IN -> throw new IllegalArgumentException("IN: is not a binary comparison");
+            }
+            out[word] = bits;
+        }
+    }
+
+    /**
+     * Same as {@link #selectLongs} for doubles, comparing with {@link Comparisons#compare(double, double)}.
+     */
+    private static void selectDoubles(double[] column, ComparisonOperator operator, double literal,
+                                      int from, int to, long[] out, int outWord) {
+        for (int base = from, word = outWord; base < to; base += 64, word++) {
+            int end = Math.min(base + 64, to);
+            long bits = 0;
+            for (int i = base; i < end; i++) {
+                if (Comparisons.test(operator, Comparisons.compare(column[i], literal))) {
+                    bits |= 1L << (i - base);
+                }
+            }
+            out[word] = bits;
+        }
+    }
+
+    private static IntFunction<Object> values(Object column) {
+        return switch (column) {
+            case long[] longs -> i -> longs[i];
+            case double[] doubles -> i -> doubles[i];
+            case Object[] objects -> i -> objects[i];
+            default -> throw new IllegalArgumentException("Unsupported column " + column.getClass().getName());
+        };
+    }
+
+    private static boolean isEmpty(long[] bitmap, int from, int words) {
+        for (int w = 0; w < words; w++) {
+            if (bitmap[from + w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int words(int from, int to) {
+        return (to - from + 63) >>> 6;
+    }
+
+    /**
+     * The number of nested logical operators, each of which needs a scratch bitmap.
+     */
+    private static int depth(Expr expr) {
+        if (!(expr instanceof Expr.Logical logical)) {
+            return 0;
+        }
+        int depth = 0;
+        for (Expr operand : logical.operands()) {
+            depth = Math.max(depth, depth(operand));
+        }
+        return depth + 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.uql;
+
+/**
+ * A UQL expression compiled against the columns of a {@link ColumnarTable}. It selects the matching rows as a bitmap
+ * of {@code long} words, bit {@code i % 64} of word {@code i / 64} standing for row {@code i}.
+ * <p>
+ * Rows are evaluated in batches of {@value #BATCH_ROWS}, so the bitmaps of a batch stay in the CPU cache: every
+ * comparison writes the bitmap of its batch and {@code &&} and {@code ||} combine them word by word. An {@code &&}
+ * whose bitmap is already empty skips its remaining operands, like the row at a time evaluation does.
+ */
+public final class ColumnarQuery {
+
+    static final int BATCH_ROWS = 4096;
+    static final int BATCH_WORDS = BATCH_ROWS / 64;
+
+    /**
+     * Writes the bitmap of the rows {@code from} (a multiple of 64) to {@code to} into {@code out}, starting at word
+     * {@code outWord}. Logical selectors use {@code scratch[depth]} for the bitmaps of their operands.
+     */
+    interface Selector {
+        void select(int from, int to, long[] out, int outWord, long[][] scratch);
+    }
+
+    private final Expr expr;
+    private final ColumnarTable table;
+    private final Selector selector;
+    private final int depth;
+
+    ColumnarQuery(Expr expr, ColumnarTable table, Selector selector, int depth) {
+        this.expr = expr;
+        this.table = table;
+        this.selector = selector;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the bitmap of the matching rows.
+     */
+    public long[] select() {
+        long start = QueryMetrics.start();
+        int rowCount = table.rowCount;
+        long[] selection = new long[(rowCount + 63) >>> 6];
+        long[][] scratch = new long[depth][BATCH_WORDS];
+        for (int from = 0; from < rowCount; from += BATCH_ROWS) {
+            selector.select(from, Math.min(from + BATCH_ROWS, rowCount), selection, from >>> 6, scratch);
+        }
+        QueryMetrics.finished(QueryMetrics.Phase.EVALUATE, start, expr);
+        return selection;
+    }
+
+    /**
+     * Returns the number of matching rows.
+     */
+    public int count() {
+        int count = 0;
+        for (long word : select()) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public Expr expr() {
+        return expr;
+    }
+
+    @Override
+    public String toString() {
+        return expr.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.uql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory table stored column by column. Columns are primitive {@code long[]} or {@code double[]} arrays, or
+ * {@code Object[]} arrays for anything else, where null is a missing value.
+ */
+public class ColumnarTable {
+
+    final int rowCount;
+    final Map<String, Object> columns = new HashMap<>();
+
+    public ColumnarTable(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public ColumnarTable withLongs(String key, long[] values) {
+        return with(key, values, values.length);
+    }
+
+    public ColumnarTable withDoubles(String key, double[] values) {
+        return with(key, values, values.length);
+    }
+
+    public ColumnarTable withObjects(String key, Object[] values) {
+        return with(key, values, values.length);
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the column array of the key, or null when the table has no such column.
+     */
+    Object column(String key) {
+        return columns.get(key);
+    }
+
+    private ColumnarTable with(String key, Object values, int length) {
+        if (length != rowCount) {
+            throw new IllegalArgumentException("Column '" + key + "' has " + length + " rows, expect " + rowCount);
+        }
+        columns.put(key, values);
+        return this;
+    }
+}
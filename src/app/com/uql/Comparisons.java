@@ -0,0 +1,116 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares row values with literals. Numbers are compared by value when both sides are numeric, anything else is
+ * compared by its string form. A missing value never satisfies a comparison, not even {@code not:}.
+ */
+final class Comparisons {
+
+    static final int MISSING = Integer.MIN_VALUE;
+
+    private Comparisons() {
+    }
+
+    /**
+     * Returns a function comparing row values with the decoded literal. Doubles are compared with a
+     * {@link Literal.Type#DOUBLE} literal as primitives, which orders them like comparing their decimal form.
+     * See {@link #compare(double, double)}.
+     */
+    static ToIntFunction<Object> comparator(Literal literal) {
+        if (literal.type() != Literal.Type.DOUBLE) {
+            return comparator(literal.value());
+        }
+        double doubleValue = literal.doubleValue();
+        BigDecimal decimal = (BigDecimal) literal.value();
+        String text = decimal.toPlainString();
+        return value -> value instanceof Double || value instanceof Float
+                ? compare(((Number) value).doubleValue(), doubleValue)
+                : compare(value, decimal, text);
+    }
+
+    /**
+     * Returns a function comparing row values with the given literal value, as returned by {@link Literals#parse}.
+     */
+    static ToIntFunction<Object> comparator(Object literal) {
+        if (literal instanceof Long number) {
+            long longValue = number;
+            String text = number.toString();
+            return value -> compare(value, longValue, text);
+        }
+        if (literal instanceof BigDecimal decimal) {
+            String text = decimal.toPlainString();
+            return value -> compare(value, decimal, text);
+        }
+        String text = literal.toString();
+        return value -> compare(value, text);
+    }
+
+    static int compare(Object value, long literal, String text) {
+        if (value == null) {
+            return MISSING;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Long.compare(((Number) value).longValue(), literal);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return compare(((Number) value).doubleValue(), literal);
+        }
+        if (value instanceof Number number) {
+            return compare(number, BigDecimal.valueOf(literal), text);
+        }
+        return Integer.signum(value.toString().compareTo(text));
+    }
+
+    static int compare(Object value, BigDecimal literal, String text) {
+        if (value == null) {
+            return MISSING;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.compareTo(literal);
+        }
+        if (value instanceof BigInteger integer) {
+            return new BigDecimal(integer).compareTo(literal);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return Double.compare(d, literal.doubleValue());
+            }
+            return BigDecimal.valueOf(d).compareTo(literal);
+        }
+        if (value instanceof Number number) {
+            return BigDecimal.valueOf(number.longValue()).compareTo(literal);
+        }
+        return Integer.signum(value.toString().compareTo(text));
+    }
+
+    /**
+     * Compares doubles like {@link Double#compare}, so NaN is greater than any literal, except that -0.0 equals 0.0
+     * as it does in decimal form.
+     */
+    static int compare(double value, double literal) {
+        return value == literal ? 0 : Double.compare(value, literal);
+    }
+
+    static int compare(Object value, String literal) {
+        if (value == null) {
+            return MISSING;
+        }
+        return Integer.signum(value.toString().compareTo(literal));
+    }
+
+    static boolean test(ComparisonOperator operator, int result) {
+        return switch (operator) {
+            case EQ, IN -> result == 0;
+            case NOT -> result != 0 && result != MISSING;
+            case GT -> result > 0;
+            case GTE -> result >= 0;
+            case LT -> result < 0 && result != MISSING;
+            case LTE -> result <= 0 && result != MISSING;
+        };
+    }
+}
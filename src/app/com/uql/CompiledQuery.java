@@ -0,0 +1,31 @@
+package com.uql;
+
+import java.util.function.Predicate;
+
+/**
+ * A UQL expression compiled into a predicate over rows. It is immutable and can be shared between threads.
+ */
+public final class CompiledQuery<T> implements Predicate<T> {
+
+    private final Expr expr;
+    final Predicate<T> predicate;
+
+    CompiledQuery(Expr expr, Predicate<T> predicate) {
+        this.expr = expr;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public boolean test(T row) {
+        return predicate.test(row);
+    }
+
+    public Expr expr() {
+        return expr;
+    }
+
+    @Override
+    public String toString() {
+        return expr.toString();
+    }
+}
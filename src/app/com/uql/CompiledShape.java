@@ -0,0 +1,63 @@
+package com.uql;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A {@link QueryShape} compiled once and bound to new parameters for every query of that shape. Binding only builds
+ * the matchers of the already decoded literals, the tree is never walked again.
+ * <p>
+ * A compiled shape holds no per query state, so one instance serves every thread binding queries of its shape.
+ */
+public final class CompiledShape<T> {
+
+    /**
+     * Evaluates a row given the matchers of the slots: a comparator of the literal for a plain slot, a membership
+     * predicate for an {@code IN:} slot.
+     */
+    @FunctionalInterface
+    interface Evaluator<T> {
+        boolean test(T row, Object[] matchers);
+    }
+
+    private final QueryShape shape;
+    private final Evaluator<T> evaluator;
+    private final boolean[] inSlots;
+
+    CompiledShape(QueryShape shape, Evaluator<T> evaluator, boolean[] inSlots) {
+        this.shape = shape;
+        this.evaluator = evaluator;
+        this.inSlots = inSlots;
+    }
+
+    public QueryShape shape() {
+        return shape;
+    }
+
+    /**
+     * Returns a predicate evaluating the shape with the given parameters, as returned by {@link QueryShape#of}.
+     */
+    @SuppressWarnings("unchecked")
+    public Predicate<T> bind(List<Object> parameters) {
+        if (parameters.size() != inSlots.length) {
+            throw new IllegalArgumentException("Expect " + inSlots.length + " parameters, got " + parameters.size());
+        }
+        Object[] matchers = new Object[inSlots.length];
+        for (int i = 0; i < matchers.length; i++) {
+            Object parameter = parameters.get(i);
+            if (inSlots[i] ? !(parameter instanceof List) : !(parameter instanceof Literal)) {
+                throw new IllegalArgumentException("Parameter " + i + " must be a " +
+                        (inSlots[i] ? "list of literals" : "literal") + ", got " + parameter);
+            }
+            matchers[i] = inSlots[i]
+                    ? QueryCompiler.membership((List<Literal>) parameter)
+                    : Comparisons.comparator((Literal) parameter);
+        }
+        return row -> evaluator.test(row, matchers);
+    }
+
+    @Override
+    public String toString() {
+        return shape.text();
+    }
+}
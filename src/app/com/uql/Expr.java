@@ -0,0 +1,92 @@
+package com.uql;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compact, immutable syntax tree of a UQL expression. Unlike {@link Node} it carries no punctuation: parentheses only
+ * shape the tree, {@code &&} binds tighter than {@code ||} and chains of the same logical operator are flattened into
+ * a single {@link Logical} node.
+ */
+public sealed interface Expr {
+
+    /**
+     * Builds the expression out of the tree produced by {@link Parser#parse()}.
+     */
+    static Expr of(Node tree) {
+        List<Token> tokens = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (node.children.isEmpty()) {
+                if (node.value != null && !node.type.equals(TokenType.EOF.name())) {
+                    tokens.add(new Token(node.value, TokenType.valueOf(node.type)));
+                }
+                continue;
+            }
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                pending.push(node.children.get(i));
+            }
+        }
+        if (tokens.isEmpty()) {
+            throw new UQLParseException("Expect expression, got end of input");
+        }
+        return new Parser(tokens).expr();
+    }
+
+    record Logical(LogicalOperator operator, List<Expr> operands) implements Expr {
+        public Logical {
+            operands = List.copyOf(operands);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) {
+                    builder.append(' ').append(operator.symbol).append(' ');
+                }
+                Expr operand = operands.get(i);
+                if (operand instanceof Logical) {
+                    builder.append('(').append(operand).append(')');
+                } else {
+                    builder.append(operand);
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A comparison with a literal, kept both as written and {@link Literal decoded}.
+     */
+    record Comparison(String key, ComparisonOperator operator, String literal, Literal value) implements Expr {
+        public Comparison(String key, ComparisonOperator operator, String literal) {
+            this(key, operator, literal, Literal.of(literal));
+        }
+
+        @Override
+        public String toString() {
+            return key + " " + operator.symbol + " " + literal;
+        }
+    }
+
+    record In(String key, List<String> literals, List<Literal> values) implements Expr {
+        public In {
+            literals = List.copyOf(literals);
+            values = List.copyOf(values);
+        }
+
+        public In(String key, List<String> literals) {
+            this(key, literals, literals.stream().map(Literal::of).toList());
+        }
+
+        @Override
+        public String toString() {
+            return key + " " + ComparisonOperator.IN.symbol + " [" + String.join(", ", literals) + "]";
+        }
+    }
+}
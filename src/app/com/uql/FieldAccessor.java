@@ -0,0 +1,60 @@
+package com.uql;
+
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reads the value of a filter key out of a row. Rows can be anything: a map, a record or a custom type.
+ */
+@FunctionalInterface
+public interface FieldAccessor<T> {
+
+    /**
+     * Returns the value of the key in the row, or null when the row has no such key.
+     */
+    Object get(T row, String key);
+
+    /**
+     * Resolves the key once, returning a getter that is applied to every row. Accessors that can look keys up ahead
+     * of time should override it.
+     */
+    default Function<T, Object> getter(String key) {
+        return row -> get(row, key);
+    }
+
+    /**
+     * Checks the keys and literals of an expression before it is compiled, so a query that can never be evaluated
+     * fails once instead of on every row. Accessors that know their keys, like {@link Schema}, should override it.
+     */
+    default void check(Expr expr) {
+    }
+
+    static <V> FieldAccessor<Map<String, V>> ofMap() {
+        return Map::get;
+    }
+
+    /**
+     * Reads the components of a record by name, through the accessors generated by {@link Schema}. Unlike a schema,
+     * unknown keys read as null.
+     */
+    static <R extends Record> FieldAccessor<R> ofRecord(Class<R> type) {
+        Schema<R> schema = Schema.of(type);
+        Map<String, Function<R, Object>> getters = new HashMap<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            getters.put(component.getName(), schema.getter(component.getName()));
+        }
+        return new FieldAccessor<>() {
+            @Override
+            public Object get(R row, String key) {
+                return getter(key).apply(row);
+            }
+
+            @Override
+            public Function<R, Object> getter(String key) {
+                return getters.getOrDefault(key, row -> null);
+            }
+        };
+    }
+}
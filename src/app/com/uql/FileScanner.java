@@ -0,0 +1,529 @@
+package com.uql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Filters the records of a newline delimited JSON or CSV file with a UQL expression, without loading the file. The
+ * file is memory mapped in chunks that end on a line break, and the chunks are scanned in parallel. Only the fields
+ * named by the expression are read out of each record, into an array of values the compiled query is evaluated on;
+ * matching records are handed to a {@link RecordSink} as they are found.
+ * <p>
+ * JSON records are objects, one per line, whose top level fields are read: strings, numbers, {@code true} and
+ * {@code false}; {@code null}, nested objects and arrays read as missing values. CSV files start with a header line
+ * naming the columns and hold one record per line, so quoted fields may contain commas and doubled quotes but no
+ * line breaks. Unquoted CSV fields that are plain numbers, without leading zeros, read as numbers, empty unquoted
+ * fields as missing values and any other field as a string.
+ */
+public final class FileScanner {
+
+    static final long CHUNK_SIZE = 64L << 20;
+
+    /**
+     * Receives the records matching the query. It is called from several threads at once, and the buffer, holding the
+     * record without its line break, is only valid during the call.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(ByteBuffer record);
+    }
+
+    private enum Format {
+        NDJSON, CSV
+    }
+
+    private final Path path;
+    private final Format format;
+    long chunkSize = CHUNK_SIZE;
+
+    private FileScanner(Path path, Format format) {
+        this.path = path;
+        this.format = format;
+    }
+
+    public static FileScanner ndjson(Path path) {
+        return new FileScanner(path, Format.NDJSON);
+    }
+
+    public static FileScanner csv(Path path) {
+        return new FileScanner(path, Format.CSV);
+    }
+
+    public long scan(Node tree, RecordSink sink) {
+        return scan(Expr.of(tree), sink);
+    }
+
+    /**
+     * Hands every record matching the expression to the sink, returning the number of matches.
+     */
+    public long scan(Expr expr, RecordSink sink) {
+        long started = QueryMetrics.start();
+        Set<String> queryKeys = new LinkedHashSet<>();
+        collectKeys(expr, queryKeys);
+        Schema<Object[]> schema = Schema.ofArray();
+        queryKeys.forEach(key -> schema.withColumn(key, Object.class));
+        CompiledQuery<Object[]> query = new QueryCompiler<>(schema).compile(expr);
+        byte[][] keys = queryKeys.stream().map(key -> key.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long start = 0;
+            int[] columns = null;
+            if (format == Format.CSV) {
+                start = nextLine(channel, 0, ByteBuffer.allocate(4096));
+                if (start > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("CSV header of " + start + " bytes is too long");
+                }
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, start);
+                columns = csvColumns(header, lineEnd(header, 0), keys);
+            }
+            List<long[]> chunks = chunks(channel, start, chunkSize);
+            LongAdder matches = new LongAdder();
+            int[] csvColumns = columns;
+            IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+                long[] chunk = chunks.get(i);
+                try {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                    matches.add(scanChunk(buffer, keys, csvColumns, query, sink));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            QueryMetrics.finished(QueryMetrics.Phase.EVALUATE, started, expr);
+            return matches.sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long scanChunk(ByteBuffer buffer, byte[][] keys, int[] csvColumns, CompiledQuery<Object[]> query,
+                           RecordSink sink) {
+        Object[] values = new Object[keys.length];
+        long matches = 0;
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = lineEnd(buffer, pos);
+            int contentEnd = end > pos && buffer.get(end - 1) == 0x0D ? end - 1 : end; // Carriage Return
+            if (contentEnd > pos) {
+                Arrays.fill(values, null);
+                if (format == Format.NDJSON) {
+                    readJson(buffer, pos, contentEnd, keys, values);
+                } else {
+                    readCsv(buffer, pos, contentEnd, csvColumns, values);
+                }
+                if (query.test(values)) {
+                    matches++;
+                    sink.accept(buffer.slice(pos, contentEnd - pos).asReadOnlyBuffer());
+                }
+            }
+            pos = end + 1;
+        }
+        return matches;
+    }
+
+    /**
+     * Splits the file from {@code start} into chunks of about {@code chunkSize} bytes, each one ending right after a
+     * line break or at the end of the file.
+     */
+    private static List<long[]> chunks(FileChannel channel, long start, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (start < size) {
+            long end = start + chunkSize;
+            if (end >= size) {
+                end = size;
+            } else {
+                end = nextLine(channel, end, probe);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the position right after the first line break at or after the given position.
+     */
+    private static long nextLine(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == 0x0A) { // Line Feed
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int pos) {
+        int limit = buffer.limit();
+        while (pos < limit && buffer.get(pos) != 0x0A) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // JSON
+
+    private static void readJson(ByteBuffer buffer, int pos, int end, byte[][] keys, Object[] values) {
+        pos = skipSpace(buffer, pos, end);
+        if (pos >= end || buffer.get(pos) != 0x7B) { // {
+            throw malformed(pos, "expect '{'");
+        }
+        pos = skipSpace(buffer, pos + 1, end);
+        if (pos < end && buffer.get(pos) == 0x7D) { // }
+            return;
+        }
+        while (true) {
+            if (pos >= end || buffer.get(pos) != 0x22) { // "
+                throw malformed(pos, "expect field name");
+            }
+            int keyEnd = stringEnd(buffer, pos, end);
+            int slot = keySlot(buffer, pos + 1, keyEnd, keys);
+            pos = skipSpace(buffer, keyEnd + 1, end);
+            if (pos >= end || buffer.get(pos) != 0x3A) { // :
+                throw malformed(pos, "expect ':'");
+            }
+            pos = skipSpace(buffer, pos + 1, end);
+            if (slot >= 0) {
+                pos = readJsonValue(buffer, pos, end, values, slot);
+            } else {
+                pos = skipJsonValue(buffer, pos, end);
+            }
+            pos = skipSpace(buffer, pos, end);
+            if (pos < end && buffer.get(pos) == 0x2C) { // ,
+                pos = skipSpace(buffer, pos + 1, end);
+            } else if (pos < end && buffer.get(pos) == 0x7D) { // }
+                return;
+            } else {
+                throw malformed(pos, "expect ',' or '}'");
+            }
+        }
+    }
+
+    private static int readJsonValue(ByteBuffer buffer, int pos, int end, Object[] values, int slot) {
+        byte b = buffer.get(pos);
+        if (b == 0x22) { // "
+            int stringEnd = stringEnd(buffer, pos, end);
+            values[slot] = jsonString(buffer, pos + 1, stringEnd);
+            return stringEnd + 1;
+        }
+        if (b == 0x2D || (b >= 0x30 && b <= 0x39)) { // - or digit
+            int numberEnd = pos + 1;
+            while (numberEnd < end && isNumberChar(buffer.get(numberEnd))) {
+                numberEnd++;
+            }
+            values[slot] = number(buffer, pos, numberEnd);
+            return numberEnd;
+        }
+        if (matches(buffer, pos, end, "true")) {
+            values[slot] = Boolean.TRUE;
+            return pos + 4;
+        }
+        if (matches(buffer, pos, end, "false")) {
+            values[slot] = Boolean.FALSE;
+            return pos + 5;
+        }
+        // null, objects and arrays are missing values
+        return skipJsonValue(buffer, pos, end);
+    }
+
+    private static int skipJsonValue(ByteBuffer buffer, int pos, int end) {
+        int depth = 0;
+        while (pos < end) {
+            byte b = buffer.get(pos);
+            if (b == 0x22) { // "
+                pos = stringEnd(buffer, pos, end) + 1;
+                if (depth == 0) {
+                    return pos;
+                }
+                continue;
+            }
+            if (b == 0x7B || b == 0x5B) { // { [
+                depth++;
+            } else if (b == 0x7D || b == 0x5D) { // } ]
+                if (depth == 0) {
+                    return pos;
+                }
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            } else if (depth == 0 && (b == 0x2C || b == 0x20 || b == 0x09)) { // , space tab
+                return pos;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position of the quote closing the string that opens at {@code pos}.
+     */
+    private static int stringEnd(ByteBuffer buffer, int pos, int end) {
+        for (int i = pos + 1; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == 0x5C) { // Backslash
+                i++;
+            } else if (b == 0x22) {
+                return i;
+            }
+        }
+        throw malformed(pos, "unterminated string");
+    }
+
+    private static String jsonString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String raw = new String(bytes, StandardCharsets.UTF_8);
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+        StringBuilder builder = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                builder.append(c);
+                continue;
+            }
+            char escaped = raw.charAt(++i);
+            switch (escaped) {
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    builder.append(unicodeEscape(raw, i + 1, start));
+                    i += 4;
+                }
+                default -> builder.append(escaped);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Decodes the four hex digits of a unicode escape, starting at {@code from}.
+     */
+    private static char unicodeEscape(String raw, int from, int start) {
+        if (from + 4 > raw.length()) {
+            throw malformed(start, "truncated unicode escape");
+        }
+        try {
+            return (char) Integer.parseInt(raw, from, from + 4, 16);
+        } catch (NumberFormatException e) {
+            throw malformed(start, "invalid unicode escape");
+        }
+    }
+
+    /**
+     * Returns the slot of the key spelled by the bytes, or -1 when the query does not use it.
+     */
+    private static int keySlot(ByteBuffer buffer, int start, int end, byte[][] keys) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            byte[] key = keys[slot];
+            if (key.length == end - start && bytesEqual(buffer, start, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean bytesEqual(ByteBuffer buffer, int start, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // CSV
+
+    private static int[] csvColumns(ByteBuffer header, int end, byte[][] keys) {
+        List<String> names = new ArrayList<>();
+        Object[] field = new Object[1];
+        int pos = 0;
+        if (end > 0 && header.get(end - 1) == 0x0D) {
+            end--;
+        }
+        while (pos <= end) {
+            pos = readCsvField(header, pos, end, field, 0, false);
+            names.add(String.valueOf(field[0]));
+            pos++;
+        }
+        int[] columns = new int[names.size()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = -1;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (names.get(column).equals(new String(keys[slot], StandardCharsets.UTF_8))) {
+                    columns[column] = slot;
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static void readCsv(ByteBuffer buffer, int pos, int end, int[] columns, Object[] values) {
+        for (int column = 0; column < columns.length && pos <= end; column++) {
+            int slot = columns[column];
+            if (slot < 0) {
+                pos = skipCsvField(buffer, pos, end) + 1;
+            } else {
+                pos = readCsvField(buffer, pos, end, values, slot, true) + 1;
+            }
+        }
+    }
+
+    private static int skipCsvField(ByteBuffer buffer, int pos, int end) {
+        if (pos < end && buffer.get(pos) == 0x22) { // "
+            pos++;
+            while (pos < end) {
+                if (buffer.get(pos) == 0x22) {
+                    if (pos + 1 < end && buffer.get(pos + 1) == 0x22) {
+                        pos += 2;
+                        continue;
+                    }
+                    return pos + 1;
+                }
+                pos++;
+            }
+            return pos;
+        }
+        while (pos < end && buffer.get(pos) != 0x2C) { // ,
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Reads the field starting at {@code pos} into the slot, returning the position of the comma after it.
+     */
+    private static int readCsvField(ByteBuffer buffer, int pos, int end, Object[] values, int slot, boolean typed) {
+        int fieldEnd = skipCsvField(buffer, pos, end);
+        if (pos < end && buffer.get(pos) == 0x22) {
+            int closing = fieldEnd - 1;
+            byte[] bytes = new byte[Math.max(0, closing - pos - 1)];
+            buffer.get(pos + 1, bytes);
+            values[slot] = new String(bytes, StandardCharsets.UTF_8).replace("\"\"", "\"");
+        } else if (typed && fieldEnd == pos) {
+            values[slot] = null;
+        } else if (typed && isPlainNumber(buffer, pos, fieldEnd)) {
+            values[slot] = number(buffer, pos, fieldEnd);
+        } else {
+            byte[] bytes = new byte[fieldEnd - pos];
+            buffer.get(pos, bytes);
+            values[slot] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return fieldEnd;
+    }
+
+    private static boolean isPlainNumber(ByteBuffer buffer, int start, int end) {
+        int pos = start < end && buffer.get(start) == 0x2D ? start + 1 : start; // -
+        if (pos >= end) {
+            return false;
+        }
+        if (buffer.get(pos) == 0x30 && pos + 1 < end && buffer.get(pos + 1) != 0x2E) { // Leading zero
+            return false;
+        }
+        boolean dot = false;
+        boolean digits = false;
+        for (int i = pos; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= 0x30 && b <= 0x39) {
+                digits = true;
+            } else if (b == 0x2E && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    // Shared
+
+    private static boolean isNumberChar(byte b) {
+        return (b >= 0x30 && b <= 0x39) || b == 0x2E || b == 0x2D || b == 0x2B || b == 0x65 || b == 0x45;
+    }
+
+    /**
+     * Reads a number as a Long when it is an integer that fits, as a BigDecimal otherwise.
+     */
+    private static Object number(ByteBuffer buffer, int start, int end) {
+        boolean negative = buffer.get(start) == 0x2D;
+        int pos = negative ? start + 1 : start;
+        if (end - pos > 0 && end - pos <= 18) {
+            long value = 0;
+            boolean integer = true;
+            for (int i = pos; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b < 0x30 || b > 0x39) {
+                    integer = false;
+                    break;
+                }
+                value = value * 10 + (b - 0x30);
+            }
+            if (integer) {
+                return negative ? -value : value;
+            }
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        try {
+            return new BigDecimal(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw malformed(start, "invalid number");
+        }
+    }
+
+    private static boolean matches(ByteBuffer buffer, int pos, int end, String word) {
+        if (end - pos < word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (buffer.get(pos + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpace(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && (buffer.get(pos) == 0x20 || buffer.get(pos) == 0x09)) { // Space or Tab
+            pos++;
+        }
+        return pos;
+    }
+
+    private static IllegalArgumentException malformed(int pos, String reason) {
+        return new IllegalArgumentException("Malformed record, " + reason + " at byte " + pos + " of its chunk");
+    }
+
+    private static void collectKeys(Expr expr, Set<String> keys) {
+        switch (expr) {
+            case Expr.Logical logical -> logical.operands().forEach(operand -> collectKeys(operand, keys));
+            case Expr.Comparison comparison -> keys.add(comparison.key());
+            case Expr.In in -> keys.add(in.key());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.uql;
+
+import static com.uql.TokenType.COMPARISON_OPERATOR;
+import static com.uql.TokenType.EOF;
+import static com.uql.TokenType.IDENTIFIER;
+import static com.uql.TokenType.LITERAL;
+import static com.uql.TokenType.LOGICAL_OPERATOR;
+import static com.uql.TokenType.SEPARATOR;
+
+/**
+ * Reusable parser that reads the same grammar as {@link Parser#parseExpr()} into a {@link FlatTree}. It pulls tokens
+ * in the tokenizer's allocation free mode and writes into arrays that are kept between queries, so once the arrays
+ * have grown to fit the queries, parsing allocates nothing.
+ * <p>
+ * A parser is not thread safe, and the returned tree is only valid until the next call to {@link #parse}.
+ */
+public final class FlatParser {
+
+    final Tokenizer tokenizer = new Tokenizer("");
+    final FlatTree tree;
+
+    CharSequence source;
+    TokenType type;
+    int start;
+    int length;
+
+    public FlatParser() {
+        this(64);
+    }
+
+    public FlatParser(int capacity) {
+        tree = new FlatTree(capacity);
+    }
+
+    public FlatTree parse(CharSequence query) {
+        long started = QueryMetrics.start();
+        source = query;
+        tokenizer.reset(query);
+        tree.reset(query);
+        try {
+            advance();
+            if (type == EOF) {
+                throw new UQLParseException("Expect expression, got end of input");
+            }
+            int root = orExpr();
+            if (type != EOF) {
+                throw new UQLParseException("Expect logical operator, got '" + describe() + "'");
+            }
+            tree.root = root;
+        } catch (RuntimeException e) {
+            QueryMetrics.failed(e);
+            throw e;
+        }
+        QueryMetrics.finished(QueryMetrics.Phase.PARSE, started, query);
+        return tree;
+    }
+
+    void advance() {
+        type = tokenizer.next();
+        start = tokenizer.tokenStart();
+        length = tokenizer.tokenLength();
+    }
+
+    int orExpr() {
+        int first = andExpr();
+        if (logicalOperator() != LogicalOperator.OR) {
+            return first;
+        }
+        int node = tree.add(FlatTree.OR);
+        addOperand(node, first);
+        while (logicalOperator() == LogicalOperator.OR) {
+            advance();
+            addOperand(node, andExpr());
+        }
+        return node;
+    }
+
+    int andExpr() {
+        int first = primaryExpr();
+        if (logicalOperator() != LogicalOperator.AND) {
+            return first;
+        }
+        int node = tree.add(FlatTree.AND);
+        addOperand(node, first);
+        while (logicalOperator() == LogicalOperator.AND) {
+            advance();
+            addOperand(node, primaryExpr());
+        }
+        return node;
+    }
+
+    void addOperand(int parent, int operand) {
+        // (a && b) && c is the same as a && b && c
+        if (tree.kind[operand] == tree.kind[parent]) {
+            for (int child = tree.firstChild[operand]; child != FlatTree.NONE; ) {
+                int next = tree.nextSibling[child];
+                tree.nextSibling[child] = FlatTree.NONE;
+                tree.appendChild(parent, child);
+                child = next;
+            }
+        } else {
+            tree.appendChild(parent, operand);
+        }
+    }
+
+    LogicalOperator logicalOperator() {
+        if (type != LOGICAL_OPERATOR) {
+            return null;
+        }
+        return LogicalOperator.of(source, start, length);
+    }
+
+    int primaryExpr() {
+        if (!isSeparator('(')) {
+            return filterExpr();
+        }
+        advance();
+        int node = orExpr();
+        expectSeparator(')');
+        return node;
+    }
+
+    int filterExpr() {
+        if (type != IDENTIFIER) {
+            throw new UQLParseException("Expect identifier, got '" + describe() + "'");
+        }
+        int keyStart = start;
+        int keyLength = length;
+        advance();
+
+        ComparisonOperator operator = null;
+        if (type == COMPARISON_OPERATOR) {
+            operator = ComparisonOperator.of(source, start, length);
+        }
+        if (operator == null) {
+            throw new UQLParseException("Expect comparison operator, got '" + describe() + "'");
+        }
+        advance();
+
+        int node;
+        if (operator == ComparisonOperator.IN) {
+            node = tree.add(FlatTree.IN);
+            expectSeparator('[');
+            tree.appendChild(node, literal(tree.add(FlatTree.LITERAL)));
+            while (isSeparator(',')) {
+                advance();
+                tree.appendChild(node, literal(tree.add(FlatTree.LITERAL)));
+            }
+            expectSeparator(']');
+        } else {
+            node = literal(tree.add(FlatTree.COMPARISON));
+        }
+        tree.operator[node] = operator.ordinal();
+        tree.keyStart[node] = keyStart;
+        tree.keyLength[node] = keyLength;
+        return node;
+    }
+
+    /**
+     * Stores the current literal into the given node.
+     */
+    int literal(int node) {
+        if (type != LITERAL) {
+            throw new UQLParseException("Expect literal, got '" + describe() + "'");
+        }
+        tree.literalStart[node] = start;
+        tree.literalLength[node] = length;
+        advance();
+        return node;
+    }
+
+    boolean isSeparator(char c) {
+        return type == SEPARATOR && source.charAt(start) == c;
+    }
+
+    void expectSeparator(char c) {
+        if (!isSeparator(c)) {
+            throw new UQLParseException("Expect " + c + ", got '" + describe() + "'");
+        }
+        advance();
+    }
+
+    String describe() {
+        return type == EOF ? "end of input" : source.subSequence(start, start + length).toString();
+    }
+}
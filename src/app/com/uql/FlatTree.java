@@ -0,0 +1,178 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link Expr} tree encoded into parallel primitive arrays, as written by {@link FlatParser}. A node is an index
+ * into the arrays; children are linked through {@link #firstChild(int)} and {@link #nextSibling(int)}. Keys and
+ * literals are offsets into the query text.
+ * <p>
+ * The tree is owned by its parser and is overwritten by the next parse.
+ */
+public final class FlatTree {
+
+    public static final int AND = 0;
+    public static final int OR = 1;
+    public static final int COMPARISON = 2;
+    public static final int IN = 3;
+    public static final int LITERAL = 4;
+
+    public static final int NONE = -1;
+
+    private static final ComparisonOperator[] OPERATORS = ComparisonOperator.values();
+
+    CharSequence source;
+    int size;
+    int root = NONE;
+
+    int[] kind;
+    int[] operator;
+    int[] keyStart;
+    int[] keyLength;
+    int[] literalStart;
+    int[] literalLength;
+    int[] firstChild;
+    int[] lastChild;
+    int[] nextSibling;
+
+    FlatTree(int capacity) {
+        kind = new int[capacity];
+        operator = new int[capacity];
+        keyStart = new int[capacity];
+        keyLength = new int[capacity];
+        literalStart = new int[capacity];
+        literalLength = new int[capacity];
+        firstChild = new int[capacity];
+        lastChild = new int[capacity];
+        nextSibling = new int[capacity];
+    }
+
+    void reset(CharSequence source) {
+        this.source = source;
+        this.size = 0;
+        this.root = NONE;
+    }
+
+    int add(int nodeKind) {
+        if (size == kind.length) {
+            grow();
+        }
+        int node = size++;
+        kind[node] = nodeKind;
+        operator[node] = NONE;
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+        nextSibling[node] = NONE;
+        return node;
+    }
+
+    void appendChild(int parent, int child) {
+        if (firstChild[parent] == NONE) {
+            firstChild[parent] = child;
+        } else {
+            nextSibling[lastChild[parent]] = child;
+        }
+        lastChild[parent] = child;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, kind.length * 2);
+        kind = Arrays.copyOf(kind, capacity);
+        operator = Arrays.copyOf(operator, capacity);
+        keyStart = Arrays.copyOf(keyStart, capacity);
+        keyLength = Arrays.copyOf(keyLength, capacity);
+        literalStart = Arrays.copyOf(literalStart, capacity);
+        literalLength = Arrays.copyOf(literalLength, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        lastChild = Arrays.copyOf(lastChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    /**
+     * Number of slots written by the last parse. Some slots may be unreachable from the root, since nested chains of
+     * the same logical operator are spliced into their parent.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return root;
+    }
+
+    public int kind(int node) {
+        return kind[node];
+    }
+
+    public ComparisonOperator comparisonOperator(int node) {
+        return OPERATORS[operator[node]];
+    }
+
+    public int keyStart(int node) {
+        return keyStart[node];
+    }
+
+    public int keyLength(int node) {
+        return keyLength[node];
+    }
+
+    public int literalStart(int node) {
+        return literalStart[node];
+    }
+
+    public int literalLength(int node) {
+        return literalLength[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Copies the tree out of the arrays into an {@link Expr}.
+     */
+    public Expr toExpr() {
+        return toExpr(root);
+    }
+
+    private Expr toExpr(int node) {
+        switch (kind[node]) {
+            case AND, OR -> {
+                List<Expr> operands = new ArrayList<>();
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    operands.add(toExpr(child));
+                }
+                return new Expr.Logical(kind[node] == AND ? LogicalOperator.AND : LogicalOperator.OR, operands);
+            }
+            case COMPARISON -> {
+                return new Expr.Comparison(key(node), comparisonOperator(node), literal(node));
+            }
+            case IN -> {
+                List<String> literals = new ArrayList<>();
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    literals.add(literal(child));
+                }
+                return new Expr.In(key(node), literals);
+            }
+            default -> throw new IllegalStateException("Unexpected node kind " + kind[node]);
+        }
+    }
+
+    private String key(int node) {
+        return source.subSequence(keyStart[node], keyStart[node] + keyLength[node]).toString();
+    }
+
+    private String literal(int node) {
+        return source.subSequence(literalStart[node], literalStart[node] + literalLength[node]).toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Membership test of an {@code IN:} list, with the same semantics as comparing the value with each literal through
+ * {@link Comparisons}. Integer literals go into a {@link LongSet}, so integral row values are looked up without boxing
+ * or scanning; string literals go into a {@link StringSet}. Only the rare values that need a numeric comparison with
+ * a decimal, such as a double compared with a long literal, fall back to comparing with each literal.
+ */
+final class InSet implements Predicate<Object> {
+
+    private final LongSet longs;
+    // String literals only
+    private final StringSet strings;
+    // Text of every literal, for values that are compared by their string form
+    private final StringSet texts;
+    private final ToIntFunction<Object>[] decimals;
+    private final ToIntFunction<Object>[] all;
+
+    private InSet(LongSet longs, StringSet strings, StringSet texts, ToIntFunction<Object>[] decimals,
+                  ToIntFunction<Object>[] all) {
+        this.longs = longs;
+        this.strings = strings;
+        this.texts = texts;
+        this.decimals = decimals;
+        this.all = all;
+    }
+
+    @SuppressWarnings("unchecked")
+    static InSet of(List<Literal> literals) {
+        long[] longs = new long[literals.size()];
+        int longCount = 0;
+        List<String> strings = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<ToIntFunction<Object>> decimals = new ArrayList<>();
+        List<ToIntFunction<Object>> all = new ArrayList<>();
+        for (Literal literal : literals) {
+            all.add(Comparisons.comparator(literal));
+            if (literal.value() instanceof Long number) {
+                longs[longCount++] = number;
+                texts.add(number.toString());
+            } else if (literal.value() instanceof BigDecimal decimal) {
+                decimals.add(Comparisons.comparator(literal));
+                texts.add(decimal.toPlainString());
+            } else {
+                strings.add((String) literal.value());
+                texts.add((String) literal.value());
+            }
+        }
+        long[] longValues = new long[longCount];
+        System.arraycopy(longs, 0, longValues, 0, longCount);
+        return new InSet(LongSet.of(longValues), StringSet.of(strings), StringSet.of(texts),
+                (ToIntFunction<Object>[]) decimals.toArray(new ToIntFunction<?>[0]),
+                (ToIntFunction<Object>[]) all.toArray(new ToIntFunction<?>[0]));
+    }
+
+    LongSet longs() {
+        return longs;
+    }
+
+    @Override
+    public boolean test(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            long longValue = ((Number) value).longValue();
+            return longs.contains(longValue)
+                    || (!strings.isEmpty() && strings.contains(Long.toString(longValue)))
+                    || matchesAny(decimals, value);
+        }
+        if (value instanceof Number) {
+            return matchesAny(all, value);
+        }
+        return texts.contains(value.toString());
+    }
+
+    private static boolean matchesAny(ToIntFunction<Object>[] comparators, Object value) {
+        for (ToIntFunction<Object> comparator : comparators) {
+            if (comparator.applyAsInt(value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
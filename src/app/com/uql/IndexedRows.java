@@ -0,0 +1,207 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory list of rows with optional secondary indexes, selecting the rows matching a UQL expression as a
+ * {@link RowBitmap}. Comparisons on indexed keys are answered from the index and combined with bitmap set operations.
+ * The range comparisons of an {@code &&} on the same key, such as {@code age gt: 18 && age lt: 65}, are merged into a
+ * single range scan. The other comparisons are evaluated row by row, only over the rows the indexed operands of an
+ * {@code &&} left.
+ */
+public class IndexedRows<T> {
+
+    final List<T> rows;
+    final FieldAccessor<T> accessor;
+    final QueryCompiler<T> compiler;
+    final Simplifier simplifier = new Simplifier();
+    final Map<String, BitmapIndex> bitmapIndexes = new HashMap<>();
+    final Map<String, RangeIndex> rangeIndexes = new HashMap<>();
+
+    public IndexedRows(List<T> rows, FieldAccessor<T> accessor) {
+        this.rows = List.copyOf(rows);
+        this.accessor = accessor;
+        this.compiler = new QueryCompiler<>(accessor);
+    }
+
+    /**
+     * Builds an inverted index of the key, answering {@code eq:}, {@code not:} and {@code IN:}. Meant for keys with
+     * few distinct values.
+     */
+    public IndexedRows<T> withBitmapIndex(String key) {
+        bitmapIndexes.put(key, new BitmapIndex(rows, accessor.getter(key)));
+        return this;
+    }
+
+    /**
+     * Builds a sorted index of the key, answering {@code gt:}, {@code gte:}, {@code lt:}, {@code lte:} and
+     * {@code eq:} on keys whose values are all integers or all strings.
+     */
+    public IndexedRows<T> withRangeIndex(String key) {
+        rangeIndexes.put(key, new RangeIndex(rows, accessor.getter(key)));
+        return this;
+    }
+
+    public RowBitmap select(Node tree) {
+        return select(Expr.of(tree));
+    }
+
+    /**
+     * Selects the matching rows. The expression is {@link Simplifier simplified} first, so an expression that is
+     * always false is answered without reading any index or row.
+     */
+    public RowBitmap select(Expr expr) {
+        long start = QueryMetrics.start();
+        long[] compiling = new long[1];
+        Simplifier.Result simplified = simplifier.simplify(expr);
+        RowBitmap selected = switch (simplified.truth()) {
+            case FALSE -> RowBitmap.empty();
+            case TRUE -> all();
+            case UNKNOWN -> evaluate(simplified.expr(), compiling);
+        };
+        // Compiling the scans is recorded as its own phase
+        QueryMetrics.finished(QueryMetrics.Phase.EVALUATE, start == 0 ? 0 : start + compiling[0], expr);
+        return selected;
+    }
+
+    /**
+     * Selects the rows matching the expression, adding the time spent compiling scans to {@code compiling[0]}.
+     */
+    private RowBitmap evaluate(Expr expr, long[] compiling) {
+        return switch (expr) {
+            case Expr.Logical logical when logical.operator() == LogicalOperator.AND ->
+                    and(logical.operands(), compiling);
+            case Expr.Logical logical -> or(logical.operands(), compiling);
+            default -> indexed(expr) ? lookup(expr, compiling) : scan(expr, null, compiling);
+        };
+    }
+
+    /**
+     * Returns the rows of the bitmap.
+     */
+    public List<T> rows(RowBitmap bitmap) {
+        List<T> selected = new ArrayList<>(bitmap.cardinality());
+        bitmap.forEach(row -> selected.add(rows.get(row)));
+        return selected;
+    }
+
+    private RowBitmap and(List<Expr> operands, long[] compiling) {
+        RowBitmap result = null;
+        List<Expr> scanned = new ArrayList<>();
+        Map<String, List<Expr.Comparison>> ranges = new LinkedHashMap<>();
+        for (Expr operand : operands) {
+            if (!indexed(operand)) {
+                scanned.add(operand);
+                continue;
+            }
+            if (operand instanceof Expr.Comparison comparison && !bitmapAnswers(comparison)) {
+                ranges.computeIfAbsent(comparison.key(), key -> new ArrayList<>()).add(comparison);
+                continue;
+            }
+            RowBitmap selected = evaluate(operand, compiling);
+            result = result == null ? selected : result.and(selected);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        for (Map.Entry<String, List<Expr.Comparison>> range : ranges.entrySet()) {
+            RowBitmap selected = rangeIndexes.get(range.getKey()).select(range.getValue());
+            result = result == null ? selected : result.and(selected);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        if (scanned.isEmpty()) {
+            return result;
+        }
+        return scan(combine(LogicalOperator.AND, scanned), result, compiling);
+    }
+
+    private RowBitmap or(List<Expr> operands, long[] compiling) {
+        RowBitmap result = RowBitmap.empty();
+        List<Expr> scanned = new ArrayList<>();
+        for (Expr operand : operands) {
+            if (indexed(operand)) {
+                result = result.or(evaluate(operand, compiling));
+            } else {
+                scanned.add(operand);
+            }
+        }
+        if (scanned.isEmpty()) {
+            return result;
+        }
+        return result.or(scan(combine(LogicalOperator.OR, scanned), null, compiling));
+    }
+
+    /**
+     * Tells whether the expression is answered from indexes alone.
+     */
+    private boolean indexed(Expr expr) {
+        return switch (expr) {
+            case Expr.Logical logical -> logical.operands().stream().allMatch(this::indexed);
+            case Expr.Comparison comparison -> bitmapAnswers(comparison) || rangeAnswers(comparison);
+            case Expr.In in -> bitmapIndexes.containsKey(in.key());
+        };
+    }
+
+    private RowBitmap lookup(Expr expr, long[] compiling) {
+        return switch (expr) {
+            case Expr.Comparison comparison when bitmapAnswers(comparison) -> bitmapIndexes.get(comparison.key())
+                    .select(comparison.operator(), comparison.value().value());
+            case Expr.Comparison comparison -> rangeIndexes.get(comparison.key()).select(List.of(comparison));
+            case Expr.In in -> bitmapIndexes.get(in.key()).in(in.values());
+            case Expr.Logical logical -> evaluate(logical, compiling);
+        };
+    }
+
+    private boolean bitmapAnswers(Expr.Comparison comparison) {
+        return bitmapIndexes.containsKey(comparison.key())
+                && (comparison.operator() == ComparisonOperator.EQ || comparison.operator() == ComparisonOperator.NOT);
+    }
+
+    private boolean rangeAnswers(Expr.Comparison comparison) {
+        RangeIndex index = rangeIndexes.get(comparison.key());
+        return index != null && index.supports(comparison.operator(), comparison.value().value());
+    }
+
+    /**
+     * Evaluates the expression row by row, over all rows or only over the candidate rows.
+     */
+    private RowBitmap scan(Expr expr, RowBitmap candidates, long[] compiling) {
+        long compileStart = System.nanoTime();
+        Predicate<T> predicate = compiler.compile(expr);
+        compiling[0] += System.nanoTime() - compileStart;
+        RowBitmap.Builder result = new RowBitmap.Builder();
+        if (candidates == null) {
+            for (int row = 0; row < rows.size(); row++) {
+                if (predicate.test(rows.get(row))) {
+                    result.add(row);
+                }
+            }
+        } else {
+            candidates.forEach(row -> {
+                if (predicate.test(rows.get(row))) {
+                    result.add(row);
+                }
+            });
+        }
+        return result.build();
+    }
+
+    private RowBitmap all() {
+        long[] words = new long[(rows.size() + 63) >>> 6];
+        for (int row = 0; row < rows.size(); row++) {
+            words[row >>> 6] |= 1L << row;
+        }
+        return RowBitmap.ofWords(words);
+    }
+
+    private static Expr combine(LogicalOperator operator, List<Expr> operands) {
+        return operands.size() == 1 ? operands.getFirst() : new Expr.Logical(operator, operands);
+    }
+}
@@ -0,0 +1,183 @@
+package com.uql;
+
+import java.math.BigDecimal;
+
+/**
+ * The value of a LITERAL token, decoded once when the query is parsed. Numbers keep their primitive value next to
+ * their exact one, so evaluators can compare them with primitive row values without boxing or parsing.
+ * <ul>
+ *     <li>{@link Type#LONG}: an integer that fits in a long.</li>
+ *     <li>{@link Type#DOUBLE}: a decimal of at most 15 significant digits, the most a double holds exactly enough
+ *     that comparing doubles gives the same order as comparing the decimals.</li>
+ *     <li>{@link Type#DECIMAL}: any other number.</li>
+ *     <li>{@link Type#STRING}: a quoted string, unquoted and with its escapes resolved.</li>
+ * </ul>
+ */
+public final class Literal {
+
+    public enum Type {
+        LONG, DOUBLE, DECIMAL, STRING
+    }
+
+    private static final int MAX_DOUBLE_PRECISION = 15;
+
+    private final String text;
+    private final Type type;
+    private final long longValue;
+    private final double doubleValue;
+    private final Object value;
+
+    private Literal(String text, Type type, long longValue, double doubleValue, Object value) {
+        this.text = text;
+        this.type = type;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.value = value;
+    }
+
+    public static Literal of(String text) {
+        return of(text, false);
+    }
+
+    /**
+     * Decodes the raw text of a literal. With {@code intern} set, string values are {@link String#intern() interned},
+     * which saves memory when many queries repeat the same strings. Text that is neither quoted nor a number is taken
+     * as a string as it is.
+     */
+    public static Literal of(String text, boolean intern) {
+        if (text.length() >= 2 && text.charAt(0) == 0x22 && text.charAt(text.length() - 1) == 0x22) { // Quotes
+            String string = unescape(text, 1, text.length() - 1);
+            return string(text, intern ? string.intern() : string);
+        }
+        try {
+            long number = Long.parseLong(text);
+            return new Literal(text, Type.LONG, number, number, number);
+        } catch (NumberFormatException e) {
+            // Not an integer or too large for a long
+        }
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return string(text, intern ? text.intern() : text);
+        }
+        double d = decimal.doubleValue();
+        if (decimal.precision() <= MAX_DOUBLE_PRECISION && Double.isFinite(d)) {
+            return new Literal(text, Type.DOUBLE, 0, d, decimal);
+        }
+        return new Literal(text, Type.DECIMAL, 0, d, decimal);
+    }
+
+    private static Literal string(String text, String value) {
+        return new Literal(text, Type.STRING, 0, 0, value);
+    }
+
+    /**
+     * The literal as it is written in the query.
+     */
+    public String text() {
+        return text;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public boolean isNumber() {
+        return type != Type.STRING;
+    }
+
+    /**
+     * The value of a {@link Type#LONG} literal.
+     */
+    public long longValue() {
+        return longValue;
+    }
+
+    /**
+     * The value of a number as a double, exact for {@link Type#DOUBLE} literals and rounded for the others.
+     */
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * The boxed value: a {@link Long} for {@link Type#LONG}, a {@link BigDecimal} for {@link Type#DOUBLE} and
+     * {@link Type#DECIMAL}, and a {@link String} for {@link Type#STRING}.
+     */
+    public Object value() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Literal literal && text.equals(literal.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Resolves the escapes of a string literal: {@code \"}, {@code \\}, {@code \/}, {@code \b}, {@code \f},
+     * {@code \n}, {@code \r}, {@code \t} and a backslash and {@code u} followed by four hex digits.
+     */
+    static String unescape(String text, int start, int end) {
+        int escape = text.indexOf(0x5C, start); // Backslash
+        if (escape < 0 || escape >= end) {
+            return text.substring(start, end);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(text, start, escape);
+        int i = escape;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c != 0x5C) {
+                builder.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 >= end) {
+                throw new UQLLexicalException("Unterminated escape in literal " + text);
+            }
+            char escaped = text.charAt(i + 1);
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append(escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    int code = i + 6 <= end ? hex(text, i + 2) : -1;
+                    if (code < 0) {
+                        throw new UQLLexicalException("Invalid unicode escape in literal " + text);
+                    }
+                    builder.append((char) code);
+                    i += 4;
+                }
+                default -> throw new UQLLexicalException("Invalid escape '\\" + escaped + "' in literal " + text);
+            }
+            i += 2;
+        }
+        return builder.toString();
+    }
+
+    private static int hex(String text, int start) {
+        int code = 0;
+        for (int i = start; i < start + 4; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            code = code << 4 | digit;
+        }
+        return code;
+    }
+}
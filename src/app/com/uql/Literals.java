@@ -0,0 +1,20 @@
+package com.uql;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts the raw text of a LITERAL token into its value.
+ */
+public final class Literals {
+
+    private Literals() {
+    }
+
+    /**
+     * Returns the unquoted text of a string literal, a {@link Long} for an integer literal, or a {@link BigDecimal}
+     * for any other number. Same as the {@link Literal#value() value} of the decoded {@link Literal}.
+     */
+    public static Object parse(String raw) {
+        return Literal.of(raw).value();
+    }
+}
@@ -0,0 +1,46 @@
+package com.uql;
+
+public enum LogicalOperator {
+    AND("&&"),
+    OR("||");
+
+    private static final LogicalOperator[] VALUES = values();
+
+    final String symbol;
+
+    LogicalOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns the operator spelled by the given chars, or null if there is none.
+     */
+    public static LogicalOperator of(CharSequence chars) {
+        return of(chars, 0, chars.length());
+    }
+
+    public static LogicalOperator of(CharSequence chars, int start, int length) {
+        for (LogicalOperator operator : VALUES) {
+            if (operator.matches(chars, start, length)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(CharSequence chars, int start, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package com.uql;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of longs without boxing. Small sets are a sorted array searched by binary search, larger ones an open
+ * addressing hash table.
+ */
+final class LongSet {
+
+    private static final int MAX_SORTED = 64;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long[] sorted;
+    private final long[] table;
+    private final int shift;
+    private final boolean containsEmpty;
+    private final int size;
+
+    private LongSet(long[] sorted, long[] table, int shift, boolean containsEmpty, int size) {
+        this.sorted = sorted;
+        this.table = table;
+        this.shift = shift;
+        this.containsEmpty = containsEmpty;
+        this.size = size;
+    }
+
+    static LongSet of(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        sorted = Arrays.copyOf(sorted, size);
+        if (size <= MAX_SORTED) {
+            return new LongSet(sorted, null, 0, false, size);
+        }
+        int capacity = Integer.highestOneBit(size * 2 - 1) << 1;
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        int shift = Long.numberOfLeadingZeros(capacity - 1);
+        boolean containsEmpty = false;
+        for (long value : sorted) {
+            if (value == EMPTY) {
+                containsEmpty = true;
+                continue;
+            }
+            int index = index(value, shift);
+            while (table[index] != EMPTY) {
+                index = (index + 1) & (capacity - 1);
+            }
+            table[index] = value;
+        }
+        return new LongSet(null, table, shift, containsEmpty, size);
+    }
+
+    boolean contains(long value) {
+        if (table == null) {
+            return Arrays.binarySearch(sorted, value) >= 0;
+        }
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = table.length - 1;
+        for (int index = index(value, shift); ; index = (index + 1) & mask) {
+            long entry = table[index];
+            if (entry == value) {
+                return true;
+            }
+            if (entry == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int index(long value, int shift) {
+        // Fibonacci hashing, the top bits of the product are well mixed
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
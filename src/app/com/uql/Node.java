@@ -1,12 +1,13 @@
 package com.uql;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class Node {
     String type;
     String value;
-    LinkedList<Node> children = new LinkedList<>();
+    List<Node> children = new ArrayList<>();
 
     public Node(String type) {
         this.type = type;
@@ -0,0 +1,209 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a compiled query over a large collection on a {@link ForkJoinPool}. The collection's {@link Spliterator}
+ * is split into chunks that are filtered in parallel, then the matches of the chunks are merged, in the order of the
+ * collection when requested. Collections smaller than the threshold are filtered on the calling thread. Either way
+ * the matches are the same as those of a sequential filter.
+ * <p>
+ * The predicate is called from several threads at once. Compiled queries are immutable, so they can be.
+ */
+public final class ParallelFilter {
+
+    static final int DEFAULT_THRESHOLD = 10_000;
+    // Smallest chunk worth a task of its own
+    static final int MIN_CHUNK = 1024;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelFilter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold the size under which collections are filtered sequentially
+     */
+    public ParallelFilter(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the rows matching the predicate. When {@code ordered} is set they are in the order of the collection,
+     * otherwise the order of the chunks is unspecified, which saves merging them in order.
+     */
+    public <T> List<T> filter(Collection<T> rows, Predicate<? super T> predicate, boolean ordered) {
+        long start = QueryMetrics.start();
+        List<T> matches = matches(rows, predicate, ordered);
+        QueryMetrics.finished(QueryMetrics.Phase.EVALUATE, start, predicate);
+        return matches;
+    }
+
+    /**
+     * Returns the number of rows matching the predicate.
+     */
+    public <T> long count(Collection<T> rows, Predicate<? super T> predicate) {
+        long start = QueryMetrics.start();
+        long count = countMatches(rows, predicate);
+        QueryMetrics.finished(QueryMetrics.Phase.EVALUATE, start, predicate);
+        return count;
+    }
+
+    private <T> List<T> matches(Collection<T> rows, Predicate<? super T> predicate, boolean ordered) {
+        if (rows.size() < threshold) {
+            List<T> matches = new ArrayList<>();
+            for (T row : rows) {
+                if (predicate.test(row)) {
+                    matches.add(row);
+                }
+            }
+            return matches;
+        }
+        long chunk = chunkSize(rows.size());
+        if (ordered) {
+            return pool.invoke(new OrderedTask<>(rows.spliterator(), predicate, chunk));
+        }
+        ConcurrentLinkedQueue<List<T>> chunks = new ConcurrentLinkedQueue<>();
+        pool.invoke(new UnorderedTask<>(rows.spliterator(), predicate, chunk, chunks));
+        List<T> matches = new ArrayList<>();
+        for (List<T> matched : chunks) {
+            matches.addAll(matched);
+        }
+        return matches;
+    }
+
+    private <T> long countMatches(Collection<T> rows, Predicate<? super T> predicate) {
+        if (rows.size() < threshold) {
+            long count = 0;
+            for (T row : rows) {
+                if (predicate.test(row)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return pool.invoke(new CountTask<>(rows.spliterator(), predicate, chunkSize(rows.size())));
+    }
+
+    /**
+     * A few chunks per worker, so workers that finish early can steal the chunks of the others.
+     */
+    private long chunkSize(int size) {
+        return Math.max(MIN_CHUNK, size / (pool.getParallelism() * 8L));
+    }
+
+    private static <T> List<T> matches(Spliterator<T> rows, Predicate<? super T> predicate) {
+        List<T> matches = new ArrayList<>();
+        rows.forEachRemaining(row -> {
+            if (predicate.test(row)) {
+                matches.add(row);
+            }
+        });
+        return matches;
+    }
+
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private static final class OrderedTask<T> extends RecursiveTask<List<T>> {
+
+        private final Spliterator<T> rows;
+        private final Predicate<? super T> predicate;
+        private final long chunk;
+
+        OrderedTask(Spliterator<T> rows, Predicate<? super T> predicate, long chunk) {
+            this.rows = rows;
+            this.predicate = predicate;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<T> compute() {
+            Spliterator<T> prefix;
+            if (rows.estimateSize() <= chunk || (prefix = rows.trySplit()) == null) {
+                return matches(rows, predicate);
+            }
+            // The split off part comes before the rest
+            OrderedTask<T> left = new OrderedTask<>(prefix, predicate, chunk);
+            left.fork();
+            List<T> right = new OrderedTask<>(rows, predicate, chunk).compute();
+            List<T> matches = left.join();
+            matches.addAll(right);
+            return matches;
+        }
+    }
+
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private static final class UnorderedTask<T> extends RecursiveTask<Void> {
+
+        private final Spliterator<T> rows;
+        private final Predicate<? super T> predicate;
+        private final long chunk;
+        private final ConcurrentLinkedQueue<List<T>> chunks;
+
+        UnorderedTask(Spliterator<T> rows, Predicate<? super T> predicate, long chunk,
+                      ConcurrentLinkedQueue<List<T>> chunks) {
+            this.rows = rows;
+            this.predicate = predicate;
+            this.chunk = chunk;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected Void compute() {
+            Spliterator<T> prefix;
+            if (rows.estimateSize() <= chunk || (prefix = rows.trySplit()) == null) {
+                List<T> matches = matches(rows, predicate);
+                if (!matches.isEmpty()) {
+                    chunks.add(matches);
+                }
+                return null;
+            }
+            UnorderedTask<T> left = new UnorderedTask<>(prefix, predicate, chunk, chunks);
+            left.fork();
+            new UnorderedTask<>(rows, predicate, chunk, chunks).compute();
+            left.join();
+            return null;
+        }
+    }
+
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private static final class CountTask<T> extends RecursiveTask<Long> {
+
+        private final Spliterator<T> rows;
+        private final Predicate<? super T> predicate;
+        private final long chunk;
+
+        CountTask(Spliterator<T> rows, Predicate<? super T> predicate, long chunk) {
+            this.rows = rows;
+            this.predicate = predicate;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Long compute() {
+            Spliterator<T> prefix;
+            if (rows.estimateSize() <= chunk || (prefix = rows.trySplit()) == null) {
+                long[] count = new long[1];
+                rows.forEachRemaining(row -> {
+                    if (predicate.test(row)) {
+                        count[0]++;
+                    }
+                });
+                return count[0];
+            }
+            CountTask<T> left = new CountTask<>(prefix, predicate, chunk);
+            left.fork();
+            long right = new CountTask<>(rows, predicate, chunk).compute();
+            return left.join() + right;
+        }
+    }
+}
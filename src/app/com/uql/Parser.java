@@ -1,8 +1,9 @@
 package com.uql;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
+import java.util.stream.Collectors;
 
 import static com.uql.TokenType.COMPARISON_OPERATOR;
 import static com.uql.TokenType.EOF;
@@ -12,68 +13,317 @@ import static com.uql.TokenType.LOGICAL_OPERATOR;
 
 public class Parser {
 
-    int pos;
-    List<Token> tokens;
+    TokenSource source;
     Token currentToken;
+    Token nextToken;
+    // Parenthesis seen by the chain of filters
+    int filtersParenCount;
+    Token filtersFirstParen;
+    boolean internStrings;
+    // Tokens given as a plain list, which has no query text
+    List<Token> tokens;
 
     public Parser(List<Token> tokens) {
         if (tokens.isEmpty()) {
             throw new RuntimeException("You must provide a list of tokens");
         }
         this.tokens = tokens;
-        this.currentToken = tokens.getFirst();
-        this.pos = 0;
+        Iterator<Token> iterator = tokens.iterator();
+        init(() -> iterator.hasNext() ? iterator.next() : Token.eof());
+    }
+
+    /**
+     * Creates a parser that pulls tokens from the source on demand, so the
+     * query never needs to be tokenized up front.
+     */
+    public Parser(TokenSource source) {
+        reset(source);
+    }
+
+    /**
+     * Creates a parser with no source yet, to be given one by
+     * {@link #reset(TokenSource)}.
+     */
+    Parser() {
+    }
+
+    /**
+     * Points the parser at a new source so the same instance can be reused.
+     */
+    final void reset(TokenSource source) {
+        tokens = null;
+        init(source);
+        if (currentToken.type == EOF) {
+            throw new UQLParseException("Expect expression, got end of input");
+        }
+    }
+
+    /**
+     * Interns the string literals of the parsed {@link Expr}, which saves
+     * memory when many queries repeat the same strings.
+     */
+    public Parser withInternedStrings() {
+        internStrings = true;
+        return this;
     }
 
+    /**
+     * Drops the source and the tokens read from it.
+     */
+    void clear() {
+        source = null;
+        currentToken = null;
+        nextToken = null;
+        filtersFirstParen = null;
+    }
+
+    private void init(TokenSource source) {
+        this.source = source;
+        this.currentToken = source.nextToken();
+        this.nextToken = source.nextToken();
+    }
+
+    /**
+     * Parses the tokens into the {@link Node} tree. When the tokens are pulled from a {@link Tokenizer}, reading them
+     * is part of the recorded {@link QueryMetrics.Phase#PARSE PARSE} phase.
+     */
     public Node parse() {
-        return uqlExpr();
+        long start = QueryMetrics.start();
+        Node tree;
+        try {
+            tree = uqlExpr();
+        } catch (RuntimeException e) {
+            QueryMetrics.failed(e);
+            throw e;
+        }
+        QueryMetrics.finished(QueryMetrics.Phase.PARSE, start, query());
+        return tree;
+    }
+
+    /**
+     * Parses the tokens into the compact {@link Expr} tree, skipping the
+     * {@link Node} tree altogether. Like {@link #parse()}, the recorded
+     * PARSE phase includes reading tokens pulled from a {@link Tokenizer}.
+     */
+    public Expr parseExpr() {
+        long start = QueryMetrics.start();
+        Expr expr;
+        try {
+            expr = expr();
+        } catch (RuntimeException e) {
+            QueryMetrics.failed(e);
+            throw e;
+        }
+        QueryMetrics.finished(QueryMetrics.Phase.PARSE, start, query());
+        return expr;
+    }
+
+    /**
+     * Parses the tokens like {@link #parseExpr()} without recording metrics, for tokens that were already parsed
+     * once, such as the ones of a {@link Node} tree.
+     */
+    Expr expr() {
+        Expr expr = orExpr();
+        if (currentToken.type != EOF) {
+            throw new UQLParseException("Expect logical operator, got '"
+                    + describe(currentToken) + "'");
+        }
+        return expr;
+    }
+
+    /**
+     * The text of the query when the tokens are read from a {@link Tokenizer}.
+     * Tokens from a plain list read as their values joined by spaces, built
+     * only when the query is turned into text.
+     */
+    Object query() {
+        if (source instanceof Tokenizer tokenizer) {
+            return tokenizer.source();
+        }
+        List<Token> listed = tokens;
+        if (listed == null) {
+            return "";
+        }
+        return new Object() {
+            @Override
+            public String toString() {
+                return listed.stream().map(Token::value).collect(Collectors.joining(" "));
+            }
+        };
     }
 
     void advance() {
-        pos++;
-        if (pos < tokens.size()) {
-            currentToken = tokens.get(pos);
+        currentToken = nextToken;
+        nextToken = currentToken.type == EOF ? currentToken : source.nextToken();
+    }
+
+    Token peekNext() {
+        return nextToken;
+    }
+
+    Expr orExpr() {
+        Expr first = andExpr();
+        if (logicalOperator() != LogicalOperator.OR) {
+            return first;
+        }
+        List<Expr> operands = new ArrayList<>();
+        addOperand(operands, first, LogicalOperator.OR);
+        while (logicalOperator() == LogicalOperator.OR) {
+            advance();
+            addOperand(operands, andExpr(), LogicalOperator.OR);
+        }
+        return new Expr.Logical(LogicalOperator.OR, operands);
+    }
+
+    Expr andExpr() {
+        Expr first = primaryExpr();
+        if (logicalOperator() != LogicalOperator.AND) {
+            return first;
+        }
+        List<Expr> operands = new ArrayList<>();
+        addOperand(operands, first, LogicalOperator.AND);
+        while (logicalOperator() == LogicalOperator.AND) {
+            advance();
+            addOperand(operands, primaryExpr(), LogicalOperator.AND);
+        }
+        return new Expr.Logical(LogicalOperator.AND, operands);
+    }
+
+    void addOperand(List<Expr> operands, Expr operand, LogicalOperator operator) {
+        // (a && b) && c is the same as a && b && c
+        if (operand instanceof Expr.Logical logical && logical.operator() == operator) {
+            operands.addAll(logical.operands());
         } else {
-            currentToken = new Token("NULL", EOF);
+            operands.add(operand);
         }
     }
 
-    Token peekNext() {
-        return tokens.get(pos + 1);
+    LogicalOperator logicalOperator() {
+        if (currentToken.type != LOGICAL_OPERATOR) {
+            return null;
+        }
+        return LogicalOperator.of(currentToken.source, currentToken.start,
+                currentToken.length);
+    }
+
+    Expr primaryExpr() {
+        if (!currentToken.equals(Token.openingParen())) {
+            return filterExpr();
+        }
+        advance();
+        Expr expr = orExpr();
+        if (!currentToken.equals(Token.closingParen())) {
+            throw new UQLParseException("Expect ')', got '"
+                    + describe(currentToken) + "'");
+        }
+        advance();
+        return expr;
+    }
+
+    Expr filterExpr() {
+        if (currentToken.type != IDENTIFIER) {
+            throw new UQLParseException("Expect identifier, got '"
+                    + describe(currentToken) + "'");
+        }
+        String key = currentToken.value();
+        advance();
+
+        if (currentToken.equals(Token.comparisonOpIn())) {
+            advance();
+            expectSeparator(Token.openingBracket());
+            List<String> literals = new ArrayList<>();
+            literals.add(literal());
+            while (currentToken.equals(Token.comma())) {
+                advance();
+                literals.add(literal());
+            }
+            expectSeparator(Token.closingBracket());
+            List<Literal> values = new ArrayList<>(literals.size());
+            for (String literal : literals) {
+                values.add(Literal.of(literal, internStrings));
+            }
+            return new Expr.In(key, literals, values);
+        }
+
+        ComparisonOperator operator = comparisonOperatorOf(currentToken);
+        if (operator == null) {
+            throw new UQLParseException("Expect comparison operator, got '"
+                    + describe(currentToken) + "'");
+        }
+        advance();
+        String literal = literal();
+        return new Expr.Comparison(key, operator, literal, Literal.of(literal, internStrings));
+    }
+
+    ComparisonOperator comparisonOperatorOf(Token token) {
+        if (token.type != COMPARISON_OPERATOR) {
+            return null;
+        }
+        return ComparisonOperator.of(token.source, token.start, token.length);
+    }
+
+    String literal() {
+        if (currentToken.type != LITERAL) {
+            throw new UQLParseException("Expect literal, got '"
+                    + describe(currentToken) + "'");
+        }
+        String literal = currentToken.value();
+        advance();
+        return literal;
+    }
+
+    void expectSeparator(Token separator) {
+        if (!currentToken.equals(separator)) {
+            throw new UQLParseException("Expect " + separator.value() + ", got '"
+                    + describe(currentToken) + "'");
+        }
+        advance();
+    }
+
+    String describe(Token token) {
+        return token.type == EOF ? "end of input" : token.value();
     }
 
     Node uqlExpr() {
         Node node = new Node("UQL_EXPR");
-        Stack<Token> parenthesis = new Stack<>();
+        int parenCount = 0;
+        Token firstParen = null;
 
         while (peekNext().equals(Token.openingParen())) {
             node.addFirst(new Node(currentToken.type.name(),
-                    currentToken.value));
-            parenthesis.add(currentToken);
+                    currentToken.value()));
+            if (parenCount++ == 0) {
+                firstParen = currentToken;
+            }
             advance();
         }
 
-        Node filtersNode = filters(new Stack<>());
+        filtersParenCount = 0;
+        filtersFirstParen = null;
+        Node filtersNode = filters();
         node.addLast(filtersNode);
 
         if (currentToken.equals(Token.closingParen())) {
-            parenthesis.add(currentToken);
+            if (parenCount++ == 0) {
+                firstParen = currentToken;
+            }
             node.addLast(new Node(currentToken.type.name(),
-                    currentToken.value));
+                    currentToken.value()));
             advance();
         }
 
-        checkMatchingParenthesis(parenthesis);
+        checkMatchingParenthesis(parenCount, firstParen);
 
         return node;
     }
 
-    void checkMatchingParenthesis(Stack<Token> parenthesis) {
-        if (parenthesis.size() % 2 != 0) {
-            while (parenthesis.size() > 1) {
-                parenthesis.pop();
-            }
-            if (parenthesis.pop().equals(Token.closingParen())) {
+    /**
+     * The parenthesis of a scope match when there is an even number of them.
+     * Otherwise, the first one tells which side is missing.
+     */
+    void checkMatchingParenthesis(int parenCount, Token firstParen) {
+        if (parenCount % 2 != 0) {
+            if (firstParen.equals(Token.closingParen())) {
                 throw new UQLParseException("Expected '(' at the beginning of the" +
                         " expression");
             } else {
@@ -83,13 +333,13 @@ public class Parser {
         }
     }
 
-    Node filters(Stack<Token> parenthesis) {
+    Node filters() {
         Node node = new Node("FILTERS_NODE");
 
         if (currentToken.equals(Token.openingParen())) {
             node.addFirst(new Node(currentToken.type.name(),
-                    currentToken.value));
-            parenthesis.add(currentToken);
+                    currentToken.value()));
+            addFiltersParen(currentToken);
             advance();
         }
 
@@ -98,23 +348,29 @@ public class Parser {
 
         if (currentToken.equals(Token.closingParen())) {
             node.addLast(new Node(currentToken.type.name(),
-                    currentToken.value));
-            parenthesis.add(currentToken);
+                    currentToken.value()));
+            addFiltersParen(currentToken);
             advance();
         }
 
         if (currentToken.type == LOGICAL_OPERATOR) {
-            node.addLast(new Node("LOGICAL_OPERATOR", currentToken.value));
+            node.addLast(new Node("LOGICAL_OPERATOR", currentToken.value()));
             advance();
-            Node filtersNode = filters(parenthesis);
+            Node filtersNode = filters();
             node.addLast(filtersNode);
         }
 
-        checkMatchingParenthesis(parenthesis);
+        checkMatchingParenthesis(filtersParenCount, filtersFirstParen);
 
         return node;
     }
 
+    void addFiltersParen(Token paren) {
+        if (filtersParenCount++ == 0) {
+            filtersFirstParen = paren;
+        }
+    }
+
     Node filter() {
         Node filterNode = new Node("FILTER_NODE");
 
@@ -132,9 +388,9 @@ public class Parser {
         }
         if (currentToken.type != IDENTIFIER) {
             throw new UQLParseException("Expect identifier, got '"
-                    + currentToken.value + "'");
+                    + currentToken.value() + "'");
         }
-        Node node = new Node("IDENTIFIER", currentToken.value);
+        Node node = new Node("IDENTIFIER", currentToken.value());
         advance();
         return node;
     }
@@ -162,11 +418,11 @@ public class Parser {
             return new Node("EOF", "NULL");
         }
         if (currentToken.type != COMPARISON_OPERATOR
-                && currentToken.value.equals("IN:")) {
+                && currentToken.contentEquals("IN:")) {
             throw new UQLParseException("Expect comparison operator, got '"
-                    + currentToken.value + "'");
+                    + currentToken.value() + "'");
         }
-        Node node = new Node("COMPARISON_OPERATOR", currentToken.value);
+        Node node = new Node("COMPARISON_OPERATOR", currentToken.value());
         advance();
         return node;
     }
@@ -177,7 +433,7 @@ public class Parser {
             if (currentToken.type == EOF) {
                 return new Node("EOF", "NULL");
             }
-            if (currentToken.value.equals("]")) {
+            if (currentToken.contentEquals("]")) {
                 tokens.add(currentToken);
                 break;
             }
@@ -191,33 +447,33 @@ public class Parser {
         for (int i = 0; i < tokens.size(); i++) {
             var token = tokens.get(i);
             if (i == 0) {
-                if (!token.value.equals("[")) {
+                if (!token.contentEquals("[")) {
                     throw new UQLParseException("Expect [, got '"
-                            + token.value + "'");
+                            + token.value() + "'");
                 }
-                node.addFirst(new Node(token.type.name(), token.value));
+                node.addFirst(new Node(token.type.name(), token.value()));
                 continue;
             }
             if (i == tokens.size() - 1) {
-                if (!token.value.equals("]")) {
+                if (!token.contentEquals("]")) {
                     throw new UQLParseException("Expect ], got '"
-                            + token.value + "'");
+                            + token.value() + "'");
                 }
-                node.addLast(new Node(token.type.name(), token.value));
+                node.addLast(new Node(token.type.name(), token.value()));
                 continue;
             }
             if (i % 2 != 0) { //odd
                 if (token.type != LITERAL) {
                     throw new UQLParseException("Expect literal, got '"
-                            + token.value + "'");
+                            + token.value() + "'");
                 }
-                node.addLast(new Node(token.type.name(), token.value));
+                node.addLast(new Node(token.type.name(), token.value()));
             } else { //even
-                if (!token.value.equals(",")) {
+                if (!token.contentEquals(",")) {
                     throw new UQLParseException("Expect ',' separator , got '"
-                            + token.value + "'");
+                            + token.value() + "'");
                 }
-                node.addLast(new Node(token.type.name(), token.value));
+                node.addLast(new Node(token.type.name(), token.value()));
             }
         }
         advance();
@@ -229,21 +485,12 @@ public class Parser {
             return new Node("EOF", "NULL");
         }
 
-        var operators = new ArrayList<String>() {{
-            add("eq:");
-            add("gt:");
-            add("lt:");
-            add("gte:");
-            add("lte:");
-            add("not:");
-        }};
-
-        if (currentToken.type != COMPARISON_OPERATOR
-                || !operators.contains(currentToken.value)) {
+        ComparisonOperator operator = comparisonOperatorOf(currentToken);
+        if (operator == null || operator == ComparisonOperator.IN) {
             throw new UQLParseException("Expect comparison operator, got '"
-                    + currentToken.value + "'");
+                    + currentToken.value() + "'");
         }
-        Node node = new Node("COMPARISON_OPERATOR", currentToken.value);
+        Node node = new Node("COMPARISON_OPERATOR", currentToken.value());
         advance();
         return node;
     }
@@ -254,9 +501,9 @@ public class Parser {
         }
         if (currentToken.type != LITERAL) {
             throw new UQLParseException("Expect literal, got '"
-                    + currentToken.value + "'");
+                    + currentToken.value() + "'");
         }
-        Node node = new Node("LITERAL", currentToken.value);
+        Node node = new Node("LITERAL", currentToken.value());
         advance();
         return node;
     }
@@ -0,0 +1,288 @@
+package com.uql;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a parsed query, to share plans between processes without parsing the query again.
+ * <pre>
+ * plan     = magic:int32 version:varint fingerprint:int64 pool node
+ * pool     = count:varint (length:varint utf8)*    keys and literal texts, each written once
+ * node     = AND count:varint node* | OR count:varint node*
+ *          | (EQ | GT | LT | GTE | LTE | NOT) key:varint literal:varint
+ *          | IN key:varint count:varint literal:varint*
+ * </pre>
+ * Node kinds and pool indexes are unsigned LEB128 varints, so a typical node fits in three bytes. The fingerprint is
+ * the one of the {@link Schema} the plan was bound to, or 0.
+ */
+public final class PlanCodec {
+
+    static final int MAGIC = 0x55514C50; // UQLP
+    static final int VERSION = 1;
+
+    // Node kinds
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int COMPARISON = 2; // Followed by the comparison operators, IN included
+    private static final ComparisonOperator[] OPERATORS = ComparisonOperator.values();
+    // Deepest nesting of logical nodes, which keeps decoding a crafted plan from overflowing the stack
+    static final int MAX_DEPTH = 1_000;
+
+    private PlanCodec() {
+    }
+
+    public static byte[] encode(Expr expr) {
+        return encode(expr, 0);
+    }
+
+    /**
+     * Encodes a plan bound to the schema, which decoding checks against.
+     */
+    public static byte[] encode(Expr expr, Schema<?> schema) {
+        schema.check(expr);
+        return encode(expr, schema.fingerprint());
+    }
+
+    private static byte[] encode(Expr expr, long fingerprint) {
+        Map<String, Integer> pool = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Writer nodes = new Writer();
+        writeNode(nodes, expr, pool, strings, 0);
+
+        Writer plan = new Writer();
+        plan.writeInt(MAGIC);
+        plan.writeVarint(VERSION);
+        plan.writeLong(fingerprint);
+        plan.writeVarint(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            plan.writeVarint(bytes.length);
+            plan.write(bytes, bytes.length);
+        }
+        plan.write(nodes.bytes, nodes.length);
+        return plan.toByteArray();
+    }
+
+    /**
+     * Reads the plan at the position of the buffer, whatever schema it was bound to, leaving the position right after
+     * it.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold a plan of this version
+     */
+    public static Expr decode(ByteBuffer buffer) {
+        return decode(buffer, null);
+    }
+
+    /**
+     * Reads a plan bound to the schema, binding the schema to its keys.
+     *
+     * @throws IllegalArgumentException if the plan was bound to another schema
+     */
+    public static Expr decode(ByteBuffer buffer, Schema<?> schema) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Malformed plan, no UQLP header");
+            }
+            int version = readVarint(buffer);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported plan version " + version + ", expect " + VERSION);
+            }
+            long fingerprint = buffer.getLong();
+            if (schema != null && fingerprint != schema.fingerprint()) {
+                throw new IllegalArgumentException("Plan was bound to schema " + Long.toHexString(fingerprint)
+                        + ", expect " + Long.toHexString(schema.fingerprint()));
+            }
+            int count = readVarint(buffer);
+            if (count > buffer.remaining()) {
+                // Every string takes at least its length byte
+                throw new IllegalArgumentException("Malformed plan, pool of " + count + " strings in "
+                        + buffer.remaining() + " bytes");
+            }
+            String[] strings = new String[count];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readVarint(buffer);
+                strings[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+                buffer.position(buffer.position() + length);
+            }
+            Literal[] literals = new Literal[strings.length];
+            Expr expr = readNode(buffer, strings, literals, 0);
+            if (schema != null) {
+                schema.check(expr);
+            }
+            return expr;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed plan, truncated or pointing out of its pool", e);
+        }
+    }
+
+    /**
+     * Returns the schema fingerprint of the plan at the position of the buffer, without moving it.
+     */
+    static long fingerprint(ByteBuffer buffer) {
+        ByteBuffer header = buffer.duplicate();
+        try {
+            if (header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Malformed plan, no UQLP header");
+            }
+            readVarint(header);
+            return header.getLong();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed plan, truncated", e);
+        }
+    }
+
+    private static void writeNode(Writer out, Expr expr, Map<String, Integer> pool, List<String> strings, int depth) {
+        switch (expr) {
+            case Expr.Logical logical -> {
+                if (depth == MAX_DEPTH) {
+                    throw new IllegalArgumentException("Plan nests logical operators deeper than " + MAX_DEPTH);
+                }
+                out.writeVarint(logical.operator() == LogicalOperator.AND ? AND : OR);
+                out.writeVarint(logical.operands().size());
+                for (Expr operand : logical.operands()) {
+                    writeNode(out, operand, pool, strings, depth + 1);
+                }
+            }
+            case Expr.Comparison comparison -> {
+                out.writeVarint(COMPARISON + comparison.operator().ordinal());
+                out.writeVarint(index(comparison.key(), pool, strings));
+                out.writeVarint(index(comparison.literal(), pool, strings));
+            }
+            case Expr.In in -> {
+                out.writeVarint(COMPARISON + ComparisonOperator.IN.ordinal());
+                out.writeVarint(index(in.key(), pool, strings));
+                out.writeVarint(in.literals().size());
+                for (String literal : in.literals()) {
+                    out.writeVarint(index(literal, pool, strings));
+                }
+            }
+        }
+    }
+
+    private static int index(String string, Map<String, Integer> pool, List<String> strings) {
+        return pool.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    private static Expr readNode(ByteBuffer buffer, String[] strings, Literal[] literals, int depth) {
+        int kind = readVarint(buffer);
+        if (kind == AND || kind == OR) {
+            if (depth == MAX_DEPTH) {
+                throw new IllegalArgumentException("Malformed plan, logical nodes nested deeper than " + MAX_DEPTH);
+            }
+            int count = readVarint(buffer);
+            if (count < 2) {
+                throw new IllegalArgumentException("Malformed plan, logical node with " + count + " operands");
+            }
+            List<Expr> operands = new ArrayList<>(Math.min(count, buffer.remaining()));
+            for (int i = 0; i < count; i++) {
+                operands.add(readNode(buffer, strings, literals, depth + 1));
+            }
+            return new Expr.Logical(kind == AND ? LogicalOperator.AND : LogicalOperator.OR, operands);
+        }
+        if (kind - COMPARISON >= OPERATORS.length) {
+            throw new IllegalArgumentException("Malformed plan, unknown node kind " + kind);
+        }
+        ComparisonOperator operator = OPERATORS[kind - COMPARISON];
+        String key = strings[readVarint(buffer)];
+        if (operator != ComparisonOperator.IN) {
+            int literal = readVarint(buffer);
+            return new Expr.Comparison(key, operator, strings[literal], literal(literal, strings, literals));
+        }
+        int count = readVarint(buffer);
+        if (count < 1) {
+            throw new IllegalArgumentException("Malformed plan, empty IN list");
+        }
+        List<String> texts = new ArrayList<>(Math.min(count, buffer.remaining()));
+        List<Literal> values = new ArrayList<>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            int literal = readVarint(buffer);
+            texts.add(strings[literal]);
+            values.add(literal(literal, strings, literals));
+        }
+        return new Expr.In(key, texts, values);
+    }
+
+    /**
+     * Decodes each literal of the pool once, however many nodes share it.
+     */
+    private static Literal literal(int index, String[] strings, Literal[] literals) {
+        Literal literal = literals[index];
+        if (literal == null) {
+            literal = Literal.of(strings[index]);
+            literals[index] = literal;
+        }
+        return literal;
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed plan, varint out of range");
+    }
+
+    /**
+     * Growable byte array.
+     */
+    static final class Writer {
+        byte[] bytes = new byte[64];
+        int length;
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeInt(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                writeByte(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void write(byte[] source, int count) {
+            ensure(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private void ensure(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.uql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append only file of plans keyed by query text, to warm a {@link QueryCache} after a restart without parsing again.
+ * <pre>
+ * file   = magic:int32 entry*
+ * entry  = length:int32 key-length:varint key:utf8 plan      length counts the bytes after itself
+ * </pre>
+ * The file is memory mapped and the plans decoded straight from it. An entry cut short by a crash is dropped when the
+ * store is opened and an entry that does not decode is skipped. Plans bound to another schema than the store's, say
+ * from before a deploy that changed the rows, are skipped too.
+ */
+public final class PlanStore implements Closeable {
+
+    static final int MAGIC = 0x55514C53; // UQLS
+
+    private final FileChannel channel;
+    private final Schema<?> schema;
+    private long end;
+
+    private PlanStore(FileChannel channel, Schema<?> schema) {
+        this.channel = channel;
+        this.schema = schema;
+    }
+
+    /**
+     * Opens the store, creating the file if needed, for plans bound to no schema.
+     */
+    public static PlanStore open(Path file) {
+        return open(file, null);
+    }
+
+    public static PlanStore open(Path file, Schema<?> schema) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            PlanStore store = new PlanStore(channel, schema);
+            try {
+                store.init();
+            } catch (RuntimeException | IOException e) {
+                channel.close();
+                throw e;
+            }
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void init() throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC).flip();
+            channel.write(header, 0);
+            end = 4;
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(4);
+        if (channel.read(header, 0) != 4 || header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a plan store, no UQLS header");
+        }
+        // Found with plain reads, since a file cannot be truncated while it is mapped on every platform
+        end = lastEntryEnd();
+        channel.truncate(end);
+    }
+
+    /**
+     * Returns the end of the last complete entry, reading only the entry lengths.
+     */
+    private long lastEntryEnd() throws IOException {
+        long size = channel.size();
+        ByteBuffer length = ByteBuffer.allocate(4);
+        long position = 4;
+        while (position + 4 <= size) {
+            if (channel.read(length.clear(), position) != 4) {
+                break;
+            }
+            int entryLength = length.getInt(0);
+            if (entryLength <= 0 || position + 4 + entryLength > size) {
+                break;
+            }
+            position += 4 + entryLength;
+        }
+        return position;
+    }
+
+    /**
+     * Appends the plan of the query. A later entry for the same query replaces the earlier one on load.
+     */
+    public synchronized void put(String query, Expr plan) {
+        byte[] encoded = schema == null ? PlanCodec.encode(plan) : PlanCodec.encode(plan, schema);
+        PlanCodec.Writer entry = new PlanCodec.Writer();
+        byte[] key = query.getBytes(StandardCharsets.UTF_8);
+        entry.writeInt(0); // Length, filled in below
+        entry.writeVarint(key.length);
+        entry.write(key, key.length);
+        entry.write(encoded, encoded.length);
+        ByteBuffer buffer = ByteBuffer.wrap(entry.bytes, 0, entry.length);
+        buffer.putInt(0, entry.length - 4);
+        try {
+            long position = end;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            end = position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads every plan of the store, by query.
+     */
+    public synchronized Map<String, Expr> plans() {
+        Map<String, Expr> plans = new LinkedHashMap<>();
+        try {
+            load(plans);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return plans;
+    }
+
+    /**
+     * Loads every plan of the store into the cache, returning how many there were.
+     */
+    public int warm(QueryCache<Expr> cache) {
+        Map<String, Expr> plans = plans();
+        plans.forEach((query, plan) -> cache.get(query, q -> plan));
+        return plans.size();
+    }
+
+    /**
+     * Decodes the complete entries into the map, skipping the malformed ones.
+     */
+    private void load(Map<String, Expr> plans) throws IOException {
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Plan store of " + end + " bytes is too large to map");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        int position = 4;
+        while (position < end) {
+            int length = mapped.getInt(position);
+            ByteBuffer entry = mapped.slice(position + 4, length);
+            try {
+                int keyLength = PlanCodec.readVarint(entry);
+                if (keyLength > entry.remaining()) {
+                    throw new IllegalArgumentException("Malformed entry, key of " + keyLength + " bytes in "
+                            + entry.remaining());
+                }
+                String query = StandardCharsets.UTF_8.decode(entry.slice(entry.position(), keyLength)).toString();
+                entry.position(entry.position() + keyLength);
+                Expr plan = decode(entry);
+                if (plan != null) {
+                    plans.put(query, plan);
+                }
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                // Corrupt entry, the next one starts after its length all the same
+            }
+            position += 4 + length;
+        }
+    }
+
+    private Expr decode(ByteBuffer entry) {
+        if (schema == null) {
+            return PlanCodec.decode(entry);
+        }
+        if (PlanCodec.fingerprint(entry) != schema.fingerprint()) {
+            return null;
+        }
+        return PlanCodec.decode(entry, schema);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
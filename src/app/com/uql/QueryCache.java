@@ -0,0 +1,161 @@
+package com.uql;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe, size-bounded cache of parsed or compiled queries keyed by the query text.
+ * <p>
+ * Eviction follows W-TinyLFU: new entries go through a small LRU window, and an entry leaving the window only enters
+ * the main LRU region if it has been requested more often than the entry it would evict there. Popularity is estimated
+ * by a {@link FrequencySketch} that counts misses as well as hits, so a burst of one-off queries cannot flush the hot
+ * set.
+ * <p>
+ * Hits never block: when the policy lock is busy, the access is simply not recorded.
+ */
+public final class QueryCache<V> {
+
+    private final int maximumSize;
+    private final int windowSize;
+    private final Function<? super String, ? extends V> loader;
+    private final ConcurrentHashMap<String, V> values = new ConcurrentHashMap<>();
+
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A cache without a default loader, to be read with {@link #get(String, Function)}.
+     */
+    public QueryCache(int maximumSize) {
+        this(maximumSize, query -> {
+            throw new IllegalStateException("No loader for '" + query + "'");
+        });
+    }
+
+    public QueryCache(int maximumSize, Function<? super String, ? extends V> loader) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive, got " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.windowSize = Math.max(1, maximumSize / 100);
+        this.loader = loader;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * A cache of the {@link Expr} of each query.
+     */
+    public static QueryCache<Expr> parsing(int maximumSize) {
+        return new QueryCache<>(maximumSize, query -> new Parser(new Tokenizer(query)).parseExpr());
+    }
+
+    /**
+     * Returns the cached value of the query, loading it on a miss. Errors thrown by the loader, such as
+     * {@link UQLParseException}, are not cached.
+     */
+    public V get(String query) {
+        return get(query, loader);
+    }
+
+    /**
+     * Returns the cached value of the query, loading it with the given loader on a miss. The loader must not return
+     * null.
+     */
+    public V get(String query, Function<? super String, ? extends V> loader) {
+        V value = values.get(query);
+        if (value != null) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    recordAccess(query);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return value;
+        }
+        misses.increment();
+        V loaded = Objects.requireNonNull(loader.apply(query), () -> "Loader returned null for '" + query + "'");
+        policyLock.lock();
+        try {
+            sketch.increment(query);
+            V existing = values.putIfAbsent(query, loaded);
+            if (existing != null) {
+                return existing;
+            }
+            window.put(query, Boolean.TRUE);
+            if (window.size() > windowSize) {
+                admit(evictEldest(window));
+            }
+        } finally {
+            policyLock.unlock();
+        }
+        return loaded;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            values.clear();
+            window.clear();
+            main.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordAccess(String query) {
+        sketch.increment(query);
+        // Touching the entry moves it to the most recently used end of its region
+        if (window.get(query) == null) {
+            main.get(query);
+        }
+    }
+
+    /**
+     * Moves the candidate leaving the window into the main region, or drops it when it is less popular than the
+     * entry it would replace.
+     */
+    private void admit(String candidate) {
+        if (main.size() < maximumSize - windowSize) {
+            main.put(candidate, Boolean.TRUE);
+            return;
+        }
+        String victim = main.isEmpty() ? null : main.keySet().iterator().next();
+        if (victim != null && sketch.frequency(candidate) > sketch.frequency(victim)) {
+            main.remove(victim);
+            values.remove(victim);
+            main.put(candidate, Boolean.TRUE);
+        } else {
+            values.remove(candidate);
+        }
+        evictions.increment();
+    }
+
+    private static String evictEldest(Map<String, Boolean> region) {
+        Iterator<String> iterator = region.keySet().iterator();
+        String eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+}
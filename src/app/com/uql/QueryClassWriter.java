@@ -0,0 +1,494 @@
+package com.uql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of a {@link java.util.function.Predicate} that evaluates one UQL expression with straight-line
+ * code: every comparison is a static call to {@link Comparisons} with the literal loaded as a constant, followed by
+ * inline branches, and {@code &&} / {@code ||} become jumps.
+ * <p>
+ * The class gets one final field per key holding the getter resolved from the field accessor, and one per literal that
+ * cannot live in the constant pool. The constructor takes the values of all of these fields, in order, as an
+ * {@code Object[]}: see {@link #fieldValues()}.
+ * <p>
+ * The class file targets version 49, so the method needs no stack map frames.
+ */
+final class QueryClassWriter {
+
+    static final String CLASS_NAME = "com/uql/GeneratedQuery";
+
+    // Methods larger than this are never JIT compiled by HotSpot
+    static final int MAX_CODE_LENGTH = 8000;
+    // Longest constant a class file can hold, in bytes of modified UTF-8
+    static final int MAX_UTF8_LENGTH = 65535;
+    // IN lists larger than this are tested through a membership predicate instead of inline comparisons
+    static final int MAX_INLINE_IN = 4;
+
+    private static final int RESULT = 2;
+    private static final int VALUE = 3;
+
+    private static final String COMPARISONS = "com/uql/Comparisons";
+    private static final String FUNCTION = "java/util/function/Function";
+    private static final String PREDICATE = "java/util/function/Predicate";
+    private static final String BIG_DECIMAL = "java/math/BigDecimal";
+
+    private final ConstantPool pool = new ConstantPool();
+    private final Code code = new Code();
+    private final Map<String, Integer> getterFields = new LinkedHashMap<>();
+    private final List<Object> fieldValues = new ArrayList<>();
+    private final List<String> fieldTypes = new ArrayList<>();
+    private final FieldAccessor<?> accessor;
+
+    QueryClassWriter(FieldAccessor<?> accessor) {
+        this.accessor = accessor;
+    }
+
+    /**
+     * Returns the class file, or null when the expression is too large for a method that the JIT would compile or
+     * holds a literal too long for the constant pool.
+     */
+    byte[] write(Expr expr) {
+        Label onFalse = new Label();
+        branch(expr, onFalse, false);
+        code.op(0x04); // iconst_1
+        code.op(0xAC); // ireturn
+        code.place(onFalse);
+        code.op(0x03); // iconst_0
+        code.op(0xAC); // ireturn
+        if (code.length() > MAX_CODE_LENGTH || pool.tooLong) {
+            return null;
+        }
+        return classFile(code.bytes());
+    }
+
+    /**
+     * Values to pass to the constructor of the written class.
+     */
+    Object[] fieldValues() {
+        return fieldValues.toArray();
+    }
+
+    /**
+     * Emits code that jumps to the target when the expression evaluates to {@code jumpIf}, and falls through
+     * otherwise.
+     */
+    private void branch(Expr expr, Label target, boolean jumpIf) {
+        switch (expr) {
+            case Expr.Logical logical -> {
+                List<Expr> operands = logical.operands();
+                // An operand that decides the whole chain jumps to the target, the others fall through
+                boolean decisive = logical.operator() == LogicalOperator.OR;
+                if (decisive == jumpIf) {
+                    for (Expr operand : operands) {
+                        branch(operand, target, jumpIf);
+                    }
+                } else {
+                    Label skip = new Label();
+                    for (int i = 0; i < operands.size() - 1; i++) {
+                        branch(operands.get(i), skip, decisive);
+                    }
+                    branch(operands.getLast(), target, jumpIf);
+                    code.place(skip);
+                }
+            }
+            case Expr.Comparison comparison -> {
+                loadValue(comparison.key());
+                compare(comparison.value().value());
+                code.op(0x36, RESULT); // istore
+                test(comparison.operator(), target, jumpIf);
+            }
+            case Expr.In in -> {
+                if (in.literals().size() > MAX_INLINE_IN) {
+                    code.op(0x2A); // aload_0
+                    int membership = field(QueryCompiler.membership(in.values()), PREDICATE);
+                    code.field(0xB4, pool.fieldRef(CLASS_NAME, "f" + membership, "L" + PREDICATE + ";")); // getfield
+                    loadValue(in.key());
+                    code.invoke(0xB9, pool.interfaceMethodRef(PREDICATE, "test", "(Ljava/lang/Object;)Z"), 2);
+                    code.jump(jumpIf ? 0x9A : 0x99, target); // ifne, ifeq
+                    return;
+                }
+                loadValue(in.key());
+                code.op(0x3A, VALUE); // astore
+                Label skip = new Label();
+                for (Literal literal : in.values()) {
+                    code.op(0x19, VALUE); // aload
+                    compare(literal.value());
+                    code.jump(0x99, jumpIf ? target : skip); // ifeq
+                }
+                if (!jumpIf) {
+                    code.jump(0xA7, target); // goto
+                }
+                code.place(skip);
+            }
+        }
+    }
+
+    /**
+     * Jumps to the target when the result of the comparison held in the RESULT local satisfies the operator, or when
+     * it does not if {@code jumpIf} is false.
+     */
+    private void test(ComparisonOperator operator, Label target, boolean jumpIf) {
+        int opcode = switch (operator) {
+            case EQ, IN -> 0x99; // ifeq
+            case NOT -> 0x9A; // ifne
+            case GT -> 0x9D; // ifgt
+            case GTE -> 0x9C; // ifge
+            case LT -> 0x9B; // iflt
+            case LTE -> 0x9E; // ifle
+        };
+        // not:, lt: and lte: must also tell the result apart from a missing value
+        boolean checkMissing = operator == ComparisonOperator.NOT || operator == ComparisonOperator.LT
+                || operator == ComparisonOperator.LTE;
+        code.op(0x15, RESULT); // iload
+        if (!checkMissing) {
+            code.jump(jumpIf ? opcode : negate(opcode), target);
+            return;
+        }
+        if (jumpIf) {
+            Label skip = new Label();
+            code.jump(negate(opcode), skip);
+            code.op(0x15, RESULT); // iload
+            code.ldc(pool.integer(Comparisons.MISSING));
+            code.jump(0xA0, target); // if_icmpne
+            code.place(skip);
+        } else {
+            code.jump(negate(opcode), target);
+            code.op(0x15, RESULT); // iload
+            code.ldc(pool.integer(Comparisons.MISSING));
+            code.jump(0x9F, target); // if_icmpeq
+        }
+    }
+
+    private static int negate(int opcode) {
+        // Conditional branches come in pairs: ifeq/ifne, iflt/ifge, ifgt/ifle
+        return ((opcode - 0x99) ^ 1) + 0x99;
+    }
+
+    /**
+     * Pushes the value of the key in the row.
+     */
+    private void loadValue(String key) {
+        Integer field = getterFields.get(key);
+        if (field == null) {
+            field = field(accessor.getter(key), FUNCTION);
+            getterFields.put(key, field);
+        }
+        code.op(0x2A); // aload_0
+        code.field(0xB4, pool.fieldRef(CLASS_NAME, "f" + field, "L" + FUNCTION + ";")); // getfield
+        code.op(0x2B); // aload_1
+        code.invoke(0xB9, pool.interfaceMethodRef(FUNCTION, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;"), 2);
+    }
+
+    /**
+     * Compares the value on top of the stack with the literal, leaving the int result.
+     */
+    private void compare(Object literal) {
+        if (literal instanceof Long number) {
+            code.ldc2(pool.longValue(number));
+            code.ldc(pool.string(number.toString()));
+            code.invoke(0xB8, pool.methodRef(COMPARISONS, "compare", "(Ljava/lang/Object;JLjava/lang/String;)I"), 0);
+        } else if (literal instanceof BigDecimal decimal) {
+            code.op(0x2A); // aload_0
+            code.field(0xB4, pool.fieldRef(CLASS_NAME, "f" + field(decimal, BIG_DECIMAL),
+                    "L" + BIG_DECIMAL + ";")); // getfield
+            code.ldc(pool.string(decimal.toPlainString()));
+            code.invoke(0xB8, pool.methodRef(COMPARISONS, "compare",
+                    "(Ljava/lang/Object;L" + BIG_DECIMAL + ";Ljava/lang/String;)I"), 0);
+        } else {
+            code.ldc(pool.string(literal.toString()));
+            code.invoke(0xB8, pool.methodRef(COMPARISONS, "compare", "(Ljava/lang/Object;Ljava/lang/String;)I"), 0);
+        }
+    }
+
+    private int field(Object value, String type) {
+        fieldValues.add(value);
+        fieldTypes.add(type);
+        return fieldValues.size() - 1;
+    }
+
+    private byte[] classFile(byte[] testCode) {
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int predicate = pool.classRef(PREDICATE);
+        int codeName = pool.utf8("Code");
+
+        Code init = new Code();
+        init.op(0x2A); // aload_0
+        init.invoke(0xB7, pool.methodRef("java/lang/Object", "<init>", "()V"), 0); // invokespecial
+        for (int i = 0; i < fieldTypes.size(); i++) {
+            init.op(0x2A); // aload_0
+            init.op(0x2B); // aload_1
+            init.op(0x11); // sipush
+            init.u2(i);
+            init.op(0x32); // aaload
+            init.op(0xC0); // checkcast
+            init.u2(pool.classRef(fieldTypes.get(i)));
+            init.field(0xB5, pool.fieldRef(CLASS_NAME, "f" + i, "L" + fieldTypes.get(i) + ";")); // putfield
+        }
+        init.op(0xB1); // return
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // Everything referenced below must be in the pool before it is written
+            int[] fieldNames = new int[fieldTypes.size()];
+            int[] fieldDescriptors = new int[fieldTypes.size()];
+            for (int i = 0; i < fieldTypes.size(); i++) {
+                fieldNames[i] = pool.utf8("f" + i);
+                fieldDescriptors[i] = pool.utf8("L" + fieldTypes.get(i) + ";");
+            }
+            int initName = pool.utf8("<init>");
+            int initDescriptor = pool.utf8("([Ljava/lang/Object;)V");
+            int testName = pool.utf8("test");
+            int testDescriptor = pool.utf8("(Ljava/lang/Object;)Z");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0); // minor version
+            out.writeShort(49); // major version
+            pool.write(out);
+            out.writeShort(0x0010 | 0x0020); // final, super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1); // interfaces
+            out.writeShort(predicate);
+
+            out.writeShort(fieldTypes.size());
+            for (int i = 0; i < fieldTypes.size(); i++) {
+                out.writeShort(0x0002 | 0x0010); // private, final
+                out.writeShort(fieldNames[i]);
+                out.writeShort(fieldDescriptors[i]);
+                out.writeShort(0); // attributes
+            }
+
+            out.writeShort(2); // methods
+            writeMethod(out, initName, initDescriptor, codeName, init.bytes(), 5, 2);
+            writeMethod(out, testName, testDescriptor, codeName, testCode, 6, 4);
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName, byte[] code,
+                                    int maxStack, int maxLocals) throws IOException {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1); // attributes
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    static final class Label {
+        int position = -1;
+        final List<Integer> jumps = new ArrayList<>();
+    }
+
+    static final class Code {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        int length() {
+            return length;
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        void op(int opcode, int local) {
+            u1(opcode);
+            u1(local);
+        }
+
+        void field(int opcode, int ref) {
+            u1(opcode);
+            u2(ref);
+        }
+
+        void invoke(int opcode, int ref, int interfaceArgs) {
+            u1(opcode);
+            u2(ref);
+            if (opcode == 0xB9) { // invokeinterface
+                u1(interfaceArgs);
+                u1(0);
+            }
+        }
+
+        void ldc(int index) {
+            u1(0x13); // ldc_w
+            u2(index);
+        }
+
+        void ldc2(int index) {
+            u1(0x14); // ldc2_w
+            u2(index);
+        }
+
+        void jump(int opcode, Label label) {
+            int at = length;
+            u1(opcode);
+            if (label.position >= 0) {
+                u2(label.position - at);
+            } else {
+                label.jumps.add(at);
+                u2(0);
+            }
+        }
+
+        void place(Label label) {
+            label.position = length;
+            for (int at : label.jumps) {
+                int offset = label.position - at;
+                bytes[at + 1] = (byte) (offset >> 8);
+                bytes[at + 2] = (byte) offset;
+            }
+        }
+
+        void u1(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+    }
+
+    static final class ConstantPool {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count = 1;
+        // Set once a constant did not fit, leaving the pool unusable
+        boolean tooLong;
+
+        int utf8(String value) {
+            if (utf8Length(value) > MAX_UTF8_LENGTH) {
+                tooLong = true;
+                return 0;
+            }
+            return entry("U" + value, 1, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int integer(int value) {
+            return entry("I" + value, 1, () -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        int longValue(long value) {
+            return entry("J" + value, 2, () -> {
+                out.writeByte(5);
+                out.writeLong(value);
+            });
+        }
+
+        int string(String value) {
+            int utf8 = utf8(value);
+            return entry("S" + value, 1, () -> {
+                out.writeByte(8);
+                out.writeShort(utf8);
+            });
+        }
+
+        int classRef(String name) {
+            int utf8 = utf8(name);
+            return entry("C" + name, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(utf8);
+            });
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        int interfaceMethodRef(String owner, String name, String descriptor) {
+            return memberRef(11, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            int classRef = classRef(owner);
+            int nameUtf8 = utf8(name);
+            int descriptorUtf8 = utf8(descriptor);
+            int nameAndType = entry("N" + name + ":" + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameUtf8);
+                out.writeShort(descriptorUtf8);
+            });
+            return entry(tag + owner + "." + name + ":" + descriptor, 1, () -> {
+                out.writeByte(tag);
+                out.writeShort(classRef);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int entry(String key, int slots, Entry entry) {
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                entry.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            index = count;
+            count += slots;
+            indexes.put(key, index);
+            return index;
+        }
+
+        private static int utf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                length += c >= 0x01 && c <= 0x7F ? 1 : c <= 0x7FF ? 2 : 3;
+            }
+            return length;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            out.flush();
+            bytes.writeTo(target);
+        }
+
+        @FunctionalInterface
+        interface Entry {
+            void write() throws IOException;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.uql;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compiles a UQL expression into a {@link CompiledQuery}. Keys are resolved through the {@link FieldAccessor} and
+ * literals are converted once, at compile time, so evaluating a row never goes back to the tree. {@code &&} and
+ * {@code ||} short-circuit from left to right.
+ * <p>
+ * Expressions are compiled through their {@link QueryShape}, so a shape can also be compiled on its own and bound to
+ * the literals of each query.
+ */
+public final class QueryCompiler<T> {
+
+    private final FieldAccessor<T> accessor;
+
+    public QueryCompiler(FieldAccessor<T> accessor) {
+        this.accessor = accessor;
+    }
+
+    public CompiledQuery<T> compile(Node tree) {
+        return compile(Expr.of(tree));
+    }
+
+    public CompiledQuery<T> compile(Expr expr) {
+        accessor.check(expr);
+        QueryShape.Parameterized parameterized = QueryShape.of(expr);
+        return new CompiledQuery<>(expr, compile(parameterized.shape()).bind(parameterized.parameters()));
+    }
+
+    /**
+     * Checks the expression against the accessor, see {@link FieldAccessor#check(Expr)}.
+     */
+    void check(Expr expr) {
+        accessor.check(expr);
+    }
+
+    /**
+     * Compiles a shape once, to be bound to the parameters of each query of that shape.
+     */
+    public CompiledShape<T> compile(QueryShape shape) {
+        long start = QueryMetrics.start();
+        CompiledShape<T> compiled;
+        try {
+            boolean[] inSlots = new boolean[shape.parameterCount()];
+            compiled = new CompiledShape<>(shape, evaluator(shape.template(), inSlots), inSlots);
+        } catch (RuntimeException e) {
+            QueryMetrics.failed(e);
+            throw e;
+        }
+        QueryMetrics.finished(QueryMetrics.Phase.COMPILE, start, shape.text());
+        return compiled;
+    }
+
+    private CompiledShape.Evaluator<T> evaluator(Expr template, boolean[] inSlots) {
+        return switch (template) {
+            case Expr.Logical logical -> logical(logical, inSlots);
+            case Expr.Comparison comparison -> comparison(comparison);
+            case Expr.In in -> in(in, inSlots);
+        };
+    }
+
+    private CompiledShape.Evaluator<T> logical(Expr.Logical logical, boolean[] inSlots) {
+        List<Expr> operands = logical.operands();
+        @SuppressWarnings("unchecked")
+        CompiledShape.Evaluator<T>[] evaluators =
+                (CompiledShape.Evaluator<T>[]) new CompiledShape.Evaluator<?>[operands.size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = evaluator(operands.get(i), inSlots);
+        }
+        if (logical.operator() == LogicalOperator.AND) {
+            if (evaluators.length == 2) {
+                CompiledShape.Evaluator<T> left = evaluators[0];
+                CompiledShape.Evaluator<T> right = evaluators[1];
+                return (row, matchers) -> left.test(row, matchers) && right.test(row, matchers);
+            }
+            return (row, matchers) -> {
+                for (CompiledShape.Evaluator<T> evaluator : evaluators) {
+                    if (!evaluator.test(row, matchers)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        if (evaluators.length == 2) {
+            CompiledShape.Evaluator<T> left = evaluators[0];
+            CompiledShape.Evaluator<T> right = evaluators[1];
+            return (row, matchers) -> left.test(row, matchers) || right.test(row, matchers);
+        }
+        return (row, matchers) -> {
+            for (CompiledShape.Evaluator<T> evaluator : evaluators) {
+                if (evaluator.test(row, matchers)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompiledShape.Evaluator<T> comparison(Expr.Comparison comparison) {
+        Function<T, Object> getter = accessor.getter(comparison.key());
+        int slot = QueryShape.slot(comparison.literal());
+        return switch (comparison.operator()) {
+            case EQ, IN -> (row, matchers) ->
+                    ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row)) == 0;
+            case NOT -> (row, matchers) -> {
+                int result = ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row));
+                return result != 0 && result != Comparisons.MISSING;
+            };
+            case GT -> (row, matchers) ->
+                    ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row)) > 0;
+            case GTE -> (row, matchers) ->
+                    ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row)) >= 0;
+            case LT -> (row, matchers) -> {
+                int result = ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row));
+                return result < 0 && result != Comparisons.MISSING;
+            };
+            case LTE -> (row, matchers) -> {
+                int result = ((ToIntFunction<Object>) matchers[slot]).applyAsInt(getter.apply(row));
+                return result <= 0 && result != Comparisons.MISSING;
+            };
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompiledShape.Evaluator<T> in(Expr.In in, boolean[] inSlots) {
+        Function<T, Object> getter = accessor.getter(in.key());
+        int slot = QueryShape.slot(in.literals().getFirst());
+        inSlots[slot] = true;
+        return (row, matchers) -> ((Predicate<Object>) matchers[slot]).test(getter.apply(row));
+    }
+
+    /**
+     * Returns a predicate telling whether a row value equals any of the literals.
+     */
+    static Predicate<Object> membership(List<Literal> literals) {
+        return InSet.of(literals);
+    }
+}
@@ -0,0 +1,215 @@
+package com.uql;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Latency and error metrics of the query pipeline, shared by the whole JVM.
+ * <p>
+ * While enabled, every phase of a query records its latency into a histogram: tokenizing, parsing, compiling and
+ * evaluating. Phases that fail count their exception by type, and phases slower than the threshold commit a
+ * {@link SlowQueryEvent} to Flight Recorder. While disabled, which is the default, a phase costs a single volatile
+ * read. Everything can be read and changed over JMX once {@link #registerMBean()} is called.
+ */
+public final class QueryMetrics implements QueryMetricsMXBean {
+
+    /**
+     * TOKENIZE covers tokenizing a whole query up front with {@link Tokenizer#tokenize()}. A {@link Parser} pulling
+     * its tokens from a tokenizer one by one lexes while it parses, so that lexing is part of PARSE.
+     */
+    public enum Phase {
+        TOKENIZE, PARSE, COMPILE, EVALUATE
+    }
+
+    static final String OBJECT_NAME = "com.uql:type=QueryMetrics";
+    private static final int MAX_QUERY_LENGTH = 4096; // Chars of the query kept by slow query events
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private static volatile boolean enabled;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private volatile long slowQueryNanos = Duration.ofMillis(100).toNanos();
+
+    private QueryMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public static QueryMetrics global() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as {@code com.uql:type=QueryMetrics}. Registering twice
+     * has no effect.
+     */
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    public Duration slowQueryThreshold() {
+        return Duration.ofNanos(slowQueryNanos);
+    }
+
+    public void setSlowQueryThreshold(Duration threshold) {
+        if (threshold.isNegative()) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative, got " + threshold);
+        }
+        slowQueryNanos = threshold.toNanos();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThreshold().toMillis();
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        setSlowQueryThreshold(Duration.ofMillis(millis));
+    }
+
+    public long count(Phase phase) {
+        return latency(phase).count();
+    }
+
+    public Duration mean(Phase phase) {
+        return Duration.ofNanos(Math.round(latency(phase).mean()));
+    }
+
+    /**
+     * Returns the latency under which the given percentage of the phases completed, within 12.5%.
+     */
+    public Duration percentile(Phase phase, double percentile) {
+        return Duration.ofNanos(latency(phase).percentile(percentile));
+    }
+
+    public Duration max(Phase phase) {
+        return Duration.ofNanos(latency(phase).max());
+    }
+
+    /**
+     * Returns the number of failures by simple name of the exception type.
+     */
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            counts.put(phase.name(), count(phase));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillis() {
+        return millis(LatencyHistogram::mean);
+    }
+
+    @Override
+    public Map<String, Double> getMedianMillis() {
+        return millis(latency -> latency.percentile(50));
+    }
+
+    @Override
+    public Map<String, Double> getP99Millis() {
+        return millis(latency -> latency.percentile(99));
+    }
+
+    @Override
+    public Map<String, Double> getMaxMillis() {
+        return millis(LatencyHistogram::max);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+        errors.clear();
+    }
+
+    /**
+     * Marks the start of a phase. Returns 0 while the metrics are disabled.
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a phase started by {@link #start()}. The query is only turned into text when the phase is slow.
+     */
+    static void finished(Phase phase, long start, Object query) {
+        if (start == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        INSTANCE.latency(phase).record(elapsed);
+        if (elapsed >= INSTANCE.slowQueryNanos) {
+            slow(phase, elapsed, query);
+        }
+    }
+
+    static void failed(RuntimeException e) {
+        if (enabled) {
+            INSTANCE.errors.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+        }
+    }
+
+    private static void slow(Phase phase, long elapsed, Object query) {
+        SlowQueryEvent event = new SlowQueryEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        String text = String.valueOf(query);
+        event.phase = phase.name();
+        event.query = text.length() > MAX_QUERY_LENGTH ? text.substring(0, MAX_QUERY_LENGTH) + "..." : text;
+        event.elapsed = elapsed;
+        event.commit();
+    }
+
+    private LatencyHistogram latency(Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    private Map<String, Double> millis(ToDoubleFunction<LatencyHistogram> nanos) {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            millis.put(phase.name(), nanos.applyAsDouble(latency(phase)) / 1e6);
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,32 @@
+package com.uql;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link QueryMetrics}. Maps are keyed by phase name, or by exception type for {@link #getErrors()}, and
+ * latencies are in milliseconds.
+ */
+public interface QueryMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    Map<String, Long> getCounts();
+
+    Map<String, Long> getErrors();
+
+    Map<String, Double> getMeanMillis();
+
+    Map<String, Double> getMedianMillis();
+
+    Map<String, Double> getP99Millis();
+
+    Map<String, Double> getMaxMillis();
+
+    void reset();
+}
@@ -0,0 +1,140 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rewrites an expression for cheaper short-circuit evaluation. Nested chains of the same logical operator are
+ * flattened, then the operands of each chain are reordered by their estimated cost and selectivity, so the cheap
+ * operands most likely to decide the result run first: {@code &&} ranks operands by {@code cost / (1 - selectivity)}
+ * and {@code ||} by {@code cost / selectivity}. Operands with the same rank keep the order the client wrote them in.
+ * <p>
+ * Selectivities come from the {@link Statistics} of the dataset. Keys without statistics get fixed guesses.
+ */
+public final class QueryOptimizer {
+
+    static final double COMPARISON_COST = 1.0;
+    static final double IN_COST = 1.5;
+    // Guesses for keys without statistics
+    static final double EQ_SELECTIVITY = 0.1;
+    static final double RANGE_SELECTIVITY = 1.0 / 3;
+
+    private final Statistics statistics;
+
+    public QueryOptimizer(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * An optimized expression with its estimated selectivity, the fraction of rows it matches, and its expected cost
+     * per row, in comparisons.
+     */
+    public record Plan(Expr expr, double selectivity, double cost, List<Plan> operands) {
+        public Plan {
+            operands = List.copyOf(operands);
+        }
+
+        /**
+         * Describes the plan, one operand per line with its estimates.
+         */
+        public String explain() {
+            StringBuilder builder = new StringBuilder();
+            explain(builder, 0);
+            return builder.toString();
+        }
+
+        private void explain(StringBuilder builder, int depth) {
+            builder.append("  ".repeat(depth));
+            if (expr instanceof Expr.Logical logical) {
+                builder.append(logical.operator().name());
+            } else {
+                builder.append(expr);
+            }
+            builder.append(String.format(Locale.ROOT, " (selectivity=%.4f, cost=%.2f)%n", selectivity, cost));
+            for (Plan operand : operands) {
+                operand.explain(builder, depth + 1);
+            }
+        }
+    }
+
+    public Plan optimize(Node tree) {
+        return optimize(Expr.of(tree));
+    }
+
+    public Plan optimize(Expr expr) {
+        return switch (expr) {
+            case Expr.Logical logical -> logical(logical);
+            case Expr.Comparison comparison -> new Plan(comparison,
+                    selectivity(comparison.key(), comparison.operator(), comparison.value().value()),
+                    COMPARISON_COST, List.of());
+            case Expr.In in -> new Plan(in, inSelectivity(in), IN_COST, List.of());
+        };
+    }
+
+    private Plan logical(Expr.Logical logical) {
+        boolean and = logical.operator() == LogicalOperator.AND;
+        List<Plan> operands = new ArrayList<>();
+        for (Expr operand : flatten(logical)) {
+            operands.add(optimize(operand));
+        }
+        operands.sort(Comparator.comparingDouble(plan -> rank(plan, and)));
+        double selectivity = and ? 1 : 0;
+        double cost = 0;
+        // The chance that the next operand runs at all
+        double reached = 1;
+        for (Plan operand : operands) {
+            cost += reached * operand.cost();
+            if (and) {
+                selectivity *= operand.selectivity();
+                reached *= operand.selectivity();
+            } else {
+                selectivity = 1 - (1 - selectivity) * (1 - operand.selectivity());
+                reached *= 1 - operand.selectivity();
+            }
+        }
+        List<Expr> exprs = operands.stream().map(Plan::expr).toList();
+        return new Plan(new Expr.Logical(logical.operator(), exprs), selectivity, cost, operands);
+    }
+
+    /**
+     * Lifts the operands of nested chains of the same operator into their parent.
+     */
+    private static List<Expr> flatten(Expr.Logical logical) {
+        List<Expr> operands = new ArrayList<>();
+        for (Expr operand : logical.operands()) {
+            if (operand instanceof Expr.Logical nested && nested.operator() == logical.operator()) {
+                operands.addAll(flatten(nested));
+            } else {
+                operands.add(operand);
+            }
+        }
+        return operands;
+    }
+
+    private static double rank(Plan plan, boolean and) {
+        double decisive = and ? 1 - plan.selectivity() : plan.selectivity();
+        return decisive <= 0 ? Double.MAX_VALUE : plan.cost() / decisive;
+    }
+
+    private double selectivity(String key, ComparisonOperator operator, Object literal) {
+        Statistics.KeyStatistics keyStatistics = statistics.of(key);
+        if (keyStatistics != null) {
+            return keyStatistics.selectivity(operator, literal);
+        }
+        return switch (operator) {
+            case EQ, IN -> EQ_SELECTIVITY;
+            case NOT -> 1 - EQ_SELECTIVITY;
+            case GT, GTE, LT, LTE -> RANGE_SELECTIVITY;
+        };
+    }
+
+    private double inSelectivity(Expr.In in) {
+        double selectivity = 0;
+        for (Literal literal : in.values()) {
+            selectivity += selectivity(in.key(), ComparisonOperator.IN, literal.value());
+        }
+        return Math.min(1, selectivity);
+    }
+}
@@ -0,0 +1,106 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The structure of a query with its literals pulled out, like a prepared statement. The template is an {@link Expr}
+ * whose literals are numbered slots, written {@code ?0}, {@code ?1} and so on, which no UQL literal can look like. A
+ * whole {@code IN:} list is a single slot, so lists of any length share the same shape.
+ * <p>
+ * {@code city eq: "A"} and {@code city eq: "B"} have the same shape, {@code city eq: ?0}, with parameters {@code "A"}
+ * and {@code "B"}.
+ */
+public record QueryShape(Expr template, int parameterCount) {
+
+    /**
+     * A query split into its shape and parameters. Each parameter is the decoded {@link Literal} of its slot, or the
+     * list of literals for an {@code IN:} slot.
+     */
+    public record Parameterized(QueryShape shape, List<Object> parameters) {
+        public Parameterized {
+            parameters = List.copyOf(parameters);
+        }
+
+        /**
+         * Puts the parameters back into the template.
+         */
+        public Expr expr() {
+            return shape.bind(parameters);
+        }
+    }
+
+    public static Parameterized of(Expr expr) {
+        List<Object> parameters = new ArrayList<>();
+        Expr template = template(expr, parameters);
+        return new Parameterized(new QueryShape(template, parameters.size()), parameters);
+    }
+
+    /**
+     * Canonical text of the shape, the same for every query that differs only in its literals.
+     */
+    public String text() {
+        return template.toString();
+    }
+
+    /**
+     * Returns the slot number of a template literal, or -1 if it is a plain literal.
+     */
+    public static int slot(String literal) {
+        if (literal.length() < 2 || literal.charAt(0) != '?') {
+            return -1;
+        }
+        return Integer.parseInt(literal, 1, literal.length(), 10);
+    }
+
+    /**
+     * Fills the slots of the template with the given parameters.
+     */
+    public Expr bind(List<Object> parameters) {
+        if (parameters.size() != parameterCount) {
+            throw new IllegalArgumentException("Expect " + parameterCount + " parameters, got " + parameters.size());
+        }
+        return bind(template, parameters);
+    }
+
+    private static Expr template(Expr expr, List<Object> parameters) {
+        return switch (expr) {
+            case Expr.Logical logical -> {
+                List<Expr> operands = new ArrayList<>(logical.operands().size());
+                for (Expr operand : logical.operands()) {
+                    operands.add(template(operand, parameters));
+                }
+                yield new Expr.Logical(logical.operator(), operands);
+            }
+            case Expr.Comparison comparison -> {
+                parameters.add(comparison.value());
+                yield new Expr.Comparison(comparison.key(), comparison.operator(), "?" + (parameters.size() - 1));
+            }
+            case Expr.In in -> {
+                parameters.add(in.values());
+                yield new Expr.In(in.key(), List.of("?" + (parameters.size() - 1)));
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expr bind(Expr template, List<Object> parameters) {
+        return switch (template) {
+            case Expr.Logical logical -> {
+                List<Expr> operands = new ArrayList<>(logical.operands().size());
+                for (Expr operand : logical.operands()) {
+                    operands.add(bind(operand, parameters));
+                }
+                yield new Expr.Logical(logical.operator(), operands);
+            }
+            case Expr.Comparison comparison -> {
+                Literal literal = (Literal) parameters.get(slot(comparison.literal()));
+                yield new Expr.Comparison(comparison.key(), comparison.operator(), literal.text(), literal);
+            }
+            case Expr.In in -> {
+                List<Literal> literals = (List<Literal>) parameters.get(slot(in.literals().getFirst()));
+                yield new Expr.In(in.key(), literals.stream().map(Literal::text).toList(), literals);
+            }
+        };
+    }
+}
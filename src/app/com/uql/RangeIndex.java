@@ -0,0 +1,197 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sorted index of a key, answering {@code gt:}, {@code gte:}, {@code lt:}, {@code lte:} and {@code eq:} with a binary
+ * search. The values are kept sorted in an array along with their rows, which suits rows that do not change once
+ * indexed better than a tree would. Each comparison selects an interval of the array, so several comparisons on the
+ * same key are merged by intersecting their intervals and the rows are read once.
+ * <p>
+ * Only keys whose values are all integers or all strings are ordered like {@link Comparisons} orders them: integers
+ * compared with integer literals, strings compared with the text of any literal. Other comparisons are not supported.
+ */
+final class RangeIndex {
+
+    private final int rowCount;
+    private final long[] longs;
+    private final String[] strings;
+    private final int[] rows;
+
+    <T> RangeIndex(List<T> rows, Function<T, Object> getter) {
+        this.rowCount = rows.size();
+        Object[] values = new Object[rowCount];
+        int count = 0;
+        boolean integers = true;
+        boolean texts = true;
+        for (int row = 0; row < rowCount; row++) {
+            Object value = getter.apply(rows.get(row));
+            if (value == null) {
+                continue;
+            }
+            integers &= value instanceof Long || value instanceof Integer || value instanceof Short
+                    || value instanceof Byte;
+            texts &= value instanceof String;
+            values[row] = value;
+            count++;
+        }
+        if (!integers && !texts) {
+            this.longs = null;
+            this.strings = null;
+            this.rows = null;
+            return;
+        }
+        // Sort the values alone, then place each row, in ascending order, after the rows already placed at the first
+        // index of its value. The rows of equal values stay ascending.
+        this.rows = new int[count];
+        int[] placed = new int[count];
+        if (integers) {
+            this.strings = null;
+            this.longs = new long[count];
+            int index = 0;
+            for (Object value : values) {
+                if (value != null) {
+                    longs[index++] = ((Number) value).longValue();
+                }
+            }
+            Arrays.sort(longs);
+            for (int row = 0; row < rowCount; row++) {
+                if (values[row] != null) {
+                    int first = first(longs, ((Number) values[row]).longValue());
+                    this.rows[first + placed[first]++] = row;
+                }
+            }
+        } else {
+            this.longs = null;
+            this.strings = new String[count];
+            int index = 0;
+            for (Object value : values) {
+                if (value != null) {
+                    strings[index++] = (String) value;
+                }
+            }
+            Arrays.sort(strings);
+            for (int row = 0; row < rowCount; row++) {
+                if (values[row] != null) {
+                    int first = first(strings, (String) values[row]);
+                    this.rows[first + placed[first]++] = row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the comparison can be answered from the index.
+     */
+    boolean supports(ComparisonOperator operator, Object literal) {
+        if (operator == ComparisonOperator.NOT || operator == ComparisonOperator.IN || rows == null) {
+            return false;
+        }
+        return strings != null || literal instanceof Long;
+    }
+
+    /**
+     * Returns the rows satisfying all the comparisons, each of which must be {@link #supports supported}.
+     */
+    RowBitmap select(List<Expr.Comparison> comparisons) {
+        int from = 0;
+        int to = rows.length;
+        for (Expr.Comparison comparison : comparisons) {
+            Object literal = comparison.value().value();
+            int lower = search(literal, false);
+            int upper = search(literal, true);
+            switch (comparison.operator()) {
+                case EQ -> {
+                    from = Math.max(from, lower);
+                    to = Math.min(to, upper);
+                }
+                case GT -> from = Math.max(from, upper);
+                case GTE -> from = Math.max(from, lower);
+                case LT -> to = Math.min(to, lower);
+                case LTE -> to = Math.min(to, upper);
+                default -> throw new IllegalArgumentException(comparison.operator().symbol
+                        + " is not answered by a range index");
+            }
+        }
+        if (from >= to) {
+            return RowBitmap.empty();
+        }
+        if (to - from < rowCount >>> 6) {
+            // Few rows, sort them rather than going through a bitmap of all rows
+            int[] selected = Arrays.copyOfRange(rows, from, to);
+            Arrays.sort(selected);
+            return RowBitmap.of(selected);
+        }
+        long[] words = new long[(rowCount + 63) >>> 6];
+        for (int i = from; i < to; i++) {
+            words[rows[i] >>> 6] |= 1L << rows[i];
+        }
+        return RowBitmap.ofWords(words);
+    }
+
+    /**
+     * Returns the index of the first value greater than the literal when {@code after} is set, greater than or equal
+     * to it otherwise.
+     */
+    private int search(Object literal, boolean after) {
+        int low = 0;
+        int high = rows.length;
+        if (longs != null) {
+            long key = (Long) literal;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (longs[mid] < key || (after && longs[mid] == key)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        String key = literal instanceof BigDecimal decimal ? decimal.toPlainString() : literal.toString();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int result = strings[mid].compareTo(key);
+            if (result < 0 || (after && result == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first occurrence of a value known to be in the sorted array.
+     */
+    private static int first(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int first(String[] sorted, String value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,244 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Opt-in, thread-safe cache of the rows matched by each query over a dataset, such as {@link IndexedRows}:
+ * <pre>{@code
+ * ResultCache cache = new ResultCache(indexedRows::select, store::version, 64 << 20);
+ * RowBitmap rows = cache.select("city eq: \"Rome\" && age gt: 30");
+ * }</pre>
+ * Results are keyed by the normalized query, the text of its expression with the operands of logical operators
+ * sorted, so queries differing only in spacing or operand order share a result. The query text is kept as an alias
+ * of the result, so repeating the same query costs one hash lookup.
+ * <p>
+ * Each result is tagged with the dataset version it was computed at and is only served at that version. The first
+ * request that sees the version move drops every cached result.
+ * <p>
+ * Rows are kept as {@link RowBitmap}s and the cache holds at most the given number of bytes, by their estimated heap
+ * size, evicting the least recently used results first. Results larger than the whole cache are not kept.
+ */
+public final class ResultCache {
+
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Function<? super Expr, RowBitmap> evaluator;
+    private final LongSupplier version;
+    private final long maximumBytes;
+    // Each entry is mapped from its normalized query and from every query text it was requested with
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private volatile long cachedVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param evaluator    selects the rows matching an expression, like {@link IndexedRows#select(Expr)}
+     * @param version      the version of the dataset, which must move whenever its rows change
+     * @param maximumBytes the estimated heap size the cached results may take
+     */
+    public ResultCache(Function<? super Expr, RowBitmap> evaluator, LongSupplier version, long maximumBytes) {
+        if (maximumBytes < 1) {
+            throw new IllegalArgumentException("Maximum bytes must be positive, got " + maximumBytes);
+        }
+        this.evaluator = evaluator;
+        this.version = version;
+        this.maximumBytes = maximumBytes;
+        this.cachedVersion = version.getAsLong();
+    }
+
+    /**
+     * Returns the rows matching the query. Errors, such as {@link UQLParseException}, are not cached.
+     */
+    public RowBitmap select(String query) {
+        long current = currentVersion();
+        Entry entry = entries.get(query);
+        if (entry != null && entry.version == current) {
+            return hit(entry);
+        }
+        return select(query, new Parser(new Tokenizer(query)).parseExpr(), current);
+    }
+
+    public RowBitmap select(Expr expr) {
+        return select(null, expr, currentVersion());
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Number of cached results.
+     */
+    public int size() {
+        policyLock.lock();
+        try {
+            return lru.size();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Estimated heap size of the cached results.
+     */
+    public long sizeInBytes() {
+        policyLock.lock();
+        try {
+            return bytes;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            entries.clear();
+            lru.clear();
+            bytes = 0;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private RowBitmap select(String query, Expr expr, long current) {
+        String plan = Simplifier.canonical(expr);
+        Entry entry = entries.get(plan);
+        if (entry != null && entry.version == current) {
+            if (query != null) {
+                alias(query, entry);
+            }
+            return hit(entry);
+        }
+        misses.increment();
+        RowBitmap rows = evaluator.apply(expr);
+        store(query, new Entry(plan, rows, current), current);
+        return rows;
+    }
+
+    /**
+     * Reads the dataset version, dropping every cached result when it has moved since the last request.
+     */
+    private long currentVersion() {
+        long current = version.getAsLong();
+        if (current != cachedVersion) {
+            policyLock.lock();
+            try {
+                if (current != cachedVersion) {
+                    entries.clear();
+                    lru.clear();
+                    bytes = 0;
+                    cachedVersion = current;
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Records the access when the policy lock is free, so hits never block.
+     */
+    private RowBitmap hit(Entry entry) {
+        hits.increment();
+        if (policyLock.tryLock()) {
+            try {
+                lru.get(entry.plan);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return entry.rows;
+    }
+
+    private void store(String query, Entry entry, long current) {
+        policyLock.lock();
+        try {
+            if (current != cachedVersion || entry.bytes > maximumBytes) {
+                // Computed at a version that has moved since, or too large to keep
+                return;
+            }
+            Entry existing = lru.get(entry.plan);
+            if (existing != null && existing.version == current) {
+                entry = existing;
+            } else {
+                lru.put(entry.plan, entry);
+                entries.put(entry.plan, entry);
+                bytes += entry.bytes;
+            }
+            if (query != null) {
+                addAlias(query, entry);
+            }
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void alias(String query, Entry entry) {
+        policyLock.lock();
+        try {
+            if (lru.get(entry.plan) == entry) {
+                addAlias(query, entry);
+                evict();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void addAlias(String query, Entry entry) {
+        if (query.equals(entry.plan) || entries.putIfAbsent(query, entry) != null) {
+            return;
+        }
+        long aliasBytes = ENTRY_OVERHEAD + query.length() * 2L;
+        entry.aliases.add(query);
+        entry.bytes += aliasBytes;
+        bytes += aliasBytes;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = lru.values().iterator();
+        while (bytes > maximumBytes && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            entries.remove(entry.plan, entry);
+            for (String alias : entry.aliases) {
+                entries.remove(alias, entry);
+            }
+            bytes -= entry.bytes;
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry {
+
+        final String plan;
+        final RowBitmap rows;
+        final long version;
+        final List<String> aliases = new ArrayList<>(1);
+        long bytes;
+
+        Entry(String plan, RowBitmap rows, long version) {
+            this.plan = plan;
+            this.rows = rows;
+            this.version = version;
+            this.bytes = ENTRY_OVERHEAD + plan.length() * 2L + rows.sizeInBytes();
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.uql;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed, immutable set of row numbers, in the style of roaring bitmaps. Rows are grouped by their high 16 bits
+ * into containers holding the low 16 bits, either as a sorted array while the container has at most
+ * {@value #ARRAY_MAX} rows, or as a 65536 bit bitmap above that. Set operations work container by container and
+ * return new bitmaps. Bitmaps are built row by row through a {@link Builder} and never change afterwards.
+ */
+public final class RowBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final RowBitmap EMPTY = new RowBitmap();
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    private RowBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private RowBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static RowBitmap empty() {
+        return EMPTY;
+    }
+
+    public static RowBitmap of(int... rows) {
+        RowBitmap bitmap = new RowBitmap();
+        for (int row : rows) {
+            bitmap.add(row);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Builds a bitmap out of plain words, bit {@code i % 64} of word {@code i / 64} standing for row {@code i}.
+     */
+    static RowBitmap ofWords(long[] words) {
+        RowBitmap bitmap = new RowBitmap();
+        for (int from = 0; from < words.length; from += 1024) {
+            long[] chunk = Arrays.copyOfRange(words, from, from + 1024);
+            BitsContainer bits = new BitsContainer(chunk);
+            if (bits.cardinality > 0) {
+                bitmap.append((char) (from >>> 10), BitsContainer.shrink(bits));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds a row while the bitmap is being built. Rows added in ascending order are appended without searching.
+     */
+    private void add(int row) {
+        char high = (char) (row >>> 16);
+        char low = (char) row;
+        if (size > 0 && keys[size - 1] == high) {
+            containers[size - 1] = containers[size - 1].add(low);
+            return;
+        }
+        int index = size > 0 && keys[size - 1] < high ? -size - 1 : Arrays.binarySearch(keys, 0, size, high);
+        if (index >= 0) {
+            containers[index] = containers[index].add(low);
+            return;
+        }
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = new ArrayContainer().add(low);
+        size++;
+    }
+
+    public boolean contains(int row) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+        return index >= 0 && containers[index].contains((char) row);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap(new char[Math.max(1, Math.min(size, other.size))],
+                new Container[Math.max(1, Math.min(size, other.size))], 0);
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap(new char[Math.max(1, size + other.size)],
+                new Container[Math.max(1, size + other.size)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i]);
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RowBitmap andNot(RowBitmap other) {
+        RowBitmap result = new RowBitmap(new char[Math.max(1, size)], new Container[Math.max(1, size)], 0);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.append(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimated heap footprint of the bitmap. Containers shared with other bitmaps are counted in full.
+     */
+    long sizeInBytes() {
+        long bytes = 32 + keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Calls the consumer with each row, in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public int[] toArray() {
+        int[] rows = new int[cardinality()];
+        int[] count = new int[1];
+        forEach(row -> rows[count[0]++] = row);
+        return rows;
+    }
+
+    /**
+     * Appends a container whose key is greater than every key of this bitmap. Containers are immutable once built,
+     * so they are shared between bitmaps rather than copied. Empty containers are dropped.
+     */
+    private void append(char key, Container container) {
+        if (container.cardinality() == 0) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RowBitmap other && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Collects rows into a new bitmap. A builder cannot be used once it has built its bitmap, so that bitmap, which
+     * may be shared with other callers, never changes.
+     */
+    static final class Builder {
+
+        private RowBitmap bitmap = new RowBitmap();
+
+        /**
+         * Adds a row. Rows added in ascending order are appended without searching.
+         */
+        Builder add(int row) {
+            if (bitmap == null) {
+                throw new IllegalStateException("The bitmap is already built");
+            }
+            bitmap.add(row);
+            return this;
+        }
+
+        RowBitmap build() {
+            if (bitmap == null) {
+                throw new IllegalStateException("The bitmap is already built");
+            }
+            RowBitmap built = bitmap;
+            bitmap = null;
+            return built;
+        }
+    }
+
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract long sizeInBytes();
+
+        abstract boolean contains(char low);
+
+        /**
+         * Adds a value, returning the container that now holds the values, which is another one after a conversion.
+         */
+        abstract Container add(char low);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract void forEach(int high, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        char[] values;
+        int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + values.length * 2L;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int index = cardinality > 0 && values[cardinality - 1] < low
+                    ? -cardinality - 1
+                    : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBits().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int j = 0;
+                for (int i = 0; i < cardinality && j < array.cardinality; ) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitsContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                // Likely too many for an array, set the bits of both sides straight away
+                long[] words = new long[1024];
+                for (int i = 0; i < cardinality; i++) {
+                    words[values[i] >>> 6] |= 1L << values[i];
+                }
+                for (int i = 0; i < array.cardinality; i++) {
+                    words[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+                return BitsContainer.shrink(new BitsContainer(words));
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        BitsContainer toBits() {
+            BitsContainer bits = new BitsContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bits.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bits.cardinality = cardinality;
+            return bits;
+        }
+    }
+
+    private static final class BitsContainer extends Container {
+
+        final long[] words;
+        int cardinality;
+
+        BitsContainer() {
+            this(new long[1024]);
+        }
+
+        BitsContainer(long[] words) {
+            this.words = words;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32 + words.length * 8L;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long word = words[low >>> 6];
+            long updated = word | (1L << low);
+            if (updated != word) {
+                words[low >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitsContainer) other).words;
+            long[] result = new long[1024];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            return shrink(new BitsContainer(result));
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            } else {
+                long[] otherWords = ((BitsContainer) other).words;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            return new BitsContainer(result);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitsContainer) other).words;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            }
+            return shrink(new BitsContainer(result));
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private static Container shrink(BitsContainer bits) {
+            if (bits.cardinality > ARRAY_MAX) {
+                return bits;
+            }
+            char[] values = new char[bits.cardinality];
+            int[] count = new int[1];
+            bits.forEach(0, row -> values[count[0]++] = (char) row);
+            return new ArrayContainer(values, bits.cardinality);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.uql;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binds the keys of a query to the fields of a row type when the query is compiled. Each key, dotted paths like
+ * {@code address.zip} included, resolves once to a {@link Slot}: a number and a getter of known type. Unknown keys and
+ * literals that cannot compare with the type of their field are rejected by {@link #check(Expr)}, before any row is
+ * read.
+ * <p>
+ * A schema reads either objects, records and POJOs through generated accessors, or arrays of values where the slot of
+ * a key is its index, see {@link #ofArray()}. Either way, reading a key costs one getter call or one array access per
+ * row.
+ */
+public final class Schema<T> implements FieldAccessor<T> {
+
+    /**
+     * A bound key. The slot numbers the keys of the schema in the order they were bound, and is the index of the
+     * value for array rows.
+     */
+    public record Slot(String path, int slot, Class<?> type, Function<Object, Object> getter) {
+    }
+
+    private final Class<T> rowType; // Null for array rows
+    private final Map<String, Slot> slots = new HashMap<>();
+    private final List<Slot> ordered = new ArrayList<>();
+
+    private Schema(Class<T> rowType) {
+        this.rowType = rowType;
+    }
+
+    /**
+     * Creates the schema of a record or POJO. A key names a record component, a public no argument method, a
+     * {@code get} or {@code is} getter, or a public field.
+     */
+    public static <T> Schema<T> of(Class<T> rowType) {
+        if (rowType.isArray() || rowType.isPrimitive()) {
+            throw new IllegalArgumentException("Expect a record or class, got " + rowType.getName());
+        }
+        return new Schema<>(rowType);
+    }
+
+    /**
+     * Creates the schema of rows that are arrays of values, the columns given by {@link #withColumn}.
+     */
+    public static Schema<Object[]> ofArray() {
+        return new Schema<>(null);
+    }
+
+    /**
+     * Adds a column to an array schema, its slot being the next index.
+     */
+    public synchronized Schema<T> withColumn(String key, Class<?> type) {
+        if (rowType != null) {
+            throw new IllegalArgumentException("Columns are only declared by array schemas, got " + rowType.getName());
+        }
+        if (slots.containsKey(key)) {
+            throw new IllegalArgumentException("Column '" + key + "' is already declared");
+        }
+        int index = ordered.size();
+        add(new Slot(key, index, type, row -> ((Object[]) row)[index]));
+        return this;
+    }
+
+    /**
+     * Resolves the key, binding it on first use.
+     *
+     * @throws UQLParseException if the row type has no such key
+     */
+    public synchronized Slot slot(String key) {
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        if (rowType == null) {
+            throw unknown(key);
+        }
+        Class<?> type = rowType;
+        Function<Object, Object> getter = null;
+        for (String name : key.split("\\.", -1)) {
+            Member member = member(type, name);
+            if (member == null) {
+                throw unknown(key);
+            }
+            getter = getter == null ? member.getter : then(getter, member.getter);
+            type = member.type;
+        }
+        return add(new Slot(key, ordered.size(), type, getter));
+    }
+
+    /**
+     * A 64 bit hash of the shape of the rows: the record components or public accessors and fields of the row type
+     * with their types, or the declared columns of an array schema. Two processes reading the same row type agree on
+     * it, so a plan bound in one can be trusted by the other, see {@link PlanCodec}. Nested types are not part of it.
+     */
+    public synchronized long fingerprint() {
+        List<String> members = new ArrayList<>();
+        if (rowType == null) {
+            for (Slot slot : ordered) {
+                members.add(slot.path() + ":" + slot.type().getName());
+            }
+        } else if (rowType.isRecord()) {
+            members.add(rowType.getName());
+            for (RecordComponent component : rowType.getRecordComponents()) {
+                members.add(component.getName() + ":" + component.getType().getName());
+            }
+        } else {
+            List<String> sorted = new ArrayList<>();
+            for (Method method : rowType.getMethods()) {
+                if (method.equals(accessor(rowType, method.getName()))) {
+                    sorted.add(method.getName() + "():" + method.getReturnType().getName());
+                }
+            }
+            for (Field field : rowType.getFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    sorted.add(field.getName() + ":" + field.getType().getName());
+                }
+            }
+            sorted.sort(null);
+            members.add(rowType.getName());
+            members.addAll(sorted);
+        }
+        long hash = 0xCBF29CE484222325L; // FNV-1a
+        for (String member : members) {
+            for (byte b : (member + ";").getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The bound keys, in slot order.
+     */
+    public synchronized List<Slot> slots() {
+        return List.copyOf(ordered);
+    }
+
+    @Override
+    public Object get(T row, String key) {
+        return slot(key).getter().apply(row);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Function<T, Object> getter(String key) {
+        return (Function<T, Object>) (Function<?, Object>) slot(key).getter();
+    }
+
+    /**
+     * Binds every key of the expression and checks its literals against the type of the field: numbers compare with
+     * numeric fields, strings with text, chars, booleans and enums. Records, arrays and collections have no value to
+     * compare with.
+     *
+     * @throws UQLParseException on the first unknown key or mismatched literal
+     */
+    @Override
+    public void check(Expr expr) {
+        switch (expr) {
+            case Expr.Logical logical -> logical.operands().forEach(this::check);
+            case Expr.Comparison comparison -> check(slot(comparison.key()), comparison.value());
+            case Expr.In in -> {
+                Slot slot = slot(in.key());
+                in.values().forEach(literal -> check(slot, literal));
+            }
+        }
+    }
+
+    private static void check(Slot slot, Literal literal) {
+        Class<?> type = box(slot.type());
+        if (type == Object.class) {
+            return;
+        }
+        boolean numeric = Number.class.isAssignableFrom(type);
+        boolean text = CharSequence.class.isAssignableFrom(type) || type == Character.class
+                || type == Boolean.class || type.isEnum();
+        if (!numeric && !text) {
+            throw new UQLParseException("Key '" + slot.path() + "' has type " + type.getSimpleName()
+                    + ", which does not compare with literals");
+        }
+        if (numeric != literal.isNumber()) {
+            throw new UQLParseException("Key '" + slot.path() + "' has type " + type.getSimpleName()
+                    + ", got " + (literal.isNumber() ? "number " : "string ") + literal.text());
+        }
+    }
+
+    private Slot add(Slot slot) {
+        slots.put(slot.path(), slot);
+        ordered.add(slot);
+        return slot;
+    }
+
+    private static UQLParseException unknown(String key) {
+        return new UQLParseException("Unknown key '" + key + "'");
+    }
+
+    private static Function<Object, Object> then(Function<Object, Object> first, Function<Object, Object> next) {
+        return row -> {
+            Object value = first.apply(row);
+            return value == null ? null : next.apply(value);
+        };
+    }
+
+    private record Member(Class<?> type, Function<Object, Object> getter) {
+    }
+
+    /**
+     * Looks the name up among the record components, the accessor methods and the public fields of the type.
+     */
+    private static Member member(Class<?> type, String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                if (component.getName().equals(name)) {
+                    return method(type, component.getAccessor());
+                }
+            }
+            return null;
+        }
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Method method = accessor(type, name);
+        if (method == null) {
+            method = accessor(type, "get" + capitalized);
+        }
+        if (method == null) {
+            method = accessor(type, "is" + capitalized);
+            if (method != null && box(method.getReturnType()) != Boolean.class) {
+                method = null;
+            }
+        }
+        if (method != null) {
+            return method(type, method);
+        }
+        for (Field field : type.getFields()) {
+            if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                try {
+                    MethodHandle handle = MethodHandles.publicLookup().unreflectGetter(field);
+                    return new Member(field.getType(), invoker(handle));
+                } catch (IllegalAccessException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the public, no argument, non static method of that name returning a value, if any. Methods of
+     * {@link Object} such as {@code hashCode()} are not keys.
+     */
+    private static Method accessor(Class<?> type, String name) {
+        try {
+            Method method = type.getMethod(name);
+            boolean getter = method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())
+                    && method.getDeclaringClass() != Object.class;
+            return getter ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the getter calling the method, or null when the method cannot be called from here.
+     */
+    private static Member method(Class<?> type, Method method) {
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            // Modules not open to this one, such as the JDK, are read through their exported public methods
+            lookup = MethodHandles.lookup();
+        }
+        try {
+            MethodHandle handle = lookup.unreflect(method);
+            return new Member(method.getReturnType(), lambda(lookup, handle));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Spins a {@link Function} calling the getter directly, as a lambda would. Falls back on invoking the handle when
+     * the row type cannot host the generated class.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> lambda(MethodHandles.Lookup lookup, MethodHandle handle) {
+        try {
+            MethodType type = handle.type();
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(box(type.returnType()), type.parameterType(0)));
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            return invoker(handle);
+        }
+    }
+
+    private static Function<Object, Object> invoker(MethodHandle handle) {
+        MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+        return row -> {
+            try {
+                return generic.invokeExact(row);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -0,0 +1,33 @@
+package com.uql;
+
+import java.util.function.Predicate;
+
+/**
+ * Cache of compiled queries keyed by their {@link QueryShape}, so queries that differ only in their literals share one
+ * compiled evaluator and only pay for binding their literals.
+ */
+public final class ShapeCache<T> {
+
+    private final QueryCompiler<T> compiler;
+    private final QueryCache<CompiledShape<T>> shapes;
+
+    public ShapeCache(int maximumSize, QueryCompiler<T> compiler) {
+        this.compiler = compiler;
+        this.shapes = new QueryCache<>(maximumSize);
+    }
+
+    public Predicate<T> get(String query) {
+        return get(new Parser(new Tokenizer(query)).parseExpr());
+    }
+
+    public Predicate<T> get(Expr expr) {
+        compiler.check(expr);
+        QueryShape.Parameterized parameterized = QueryShape.of(expr);
+        QueryShape shape = parameterized.shape();
+        return shapes.get(shape.text(), text -> compiler.compile(shape)).bind(parameterized.parameters());
+    }
+
+    public CacheStats stats() {
+        return shapes.stats();
+    }
+}
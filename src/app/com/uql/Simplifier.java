@@ -0,0 +1,474 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites an expression into a simpler one matching the same rows. Within each chain of {@code &&} or {@code ||}:
+ * <ul>
+ * <li>duplicate operands are removed,</li>
+ * <li>range bounds on the same key are merged, {@code x gt: 1 && x gt: 5} into {@code x gt: 5},</li>
+ * <li>equalities on the same key are folded into a set, {@code a eq: 1 || a eq: 2} into {@code a IN: [1, 2]},</li>
+ * <li>contradictions such as {@code a eq: 1 && a eq: 2} make the whole chain always false.</li>
+ * </ul>
+ * Since a missing value matches no comparison, an expression like {@code a eq: 1 || a not: 1} is only always true for
+ * keys declared non-null.
+ * <p>
+ * Two literals are only merged or compared when they order every value the same way, see {@link #consistent}: both
+ * strings, or numbers whose numeric and text orders agree. Operands whose literals can't be compared are kept as is.
+ */
+public final class Simplifier {
+
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    public enum Truth {
+        TRUE, FALSE, UNKNOWN
+    }
+
+    /**
+     * The simplified expression along with its truth value. When the truth value is known, it does not depend on the
+     * row and the expression is null: no row needs to be read.
+     */
+    public record Result(Truth truth, Expr expr) {
+        static final Result TRUE = new Result(Truth.TRUE, null);
+        static final Result FALSE = new Result(Truth.FALSE, null);
+
+        public boolean alwaysTrue() {
+            return truth == Truth.TRUE;
+        }
+
+        public boolean alwaysFalse() {
+            return truth == Truth.FALSE;
+        }
+    }
+
+    private record Bound(Literal literal, boolean inclusive) {
+    }
+
+    private final Set<String> nonNullKeys;
+
+    public Simplifier() {
+        this(Set.of());
+    }
+
+    /**
+     * @param nonNullKeys the keys every row has a value for
+     */
+    public Simplifier(Set<String> nonNullKeys) {
+        this.nonNullKeys = Set.copyOf(nonNullKeys);
+    }
+
+    public Result simplify(Node tree) {
+        return simplify(Expr.of(tree));
+    }
+
+    public Result simplify(Expr expr) {
+        return switch (expr) {
+            case Expr.Logical logical -> logical(logical);
+            case Expr.Comparison comparison -> unknown(comparison);
+            case Expr.In in -> unknown(in(in.key(), literals(in.values())));
+        };
+    }
+
+    private Result logical(Expr.Logical logical) {
+        boolean and = logical.operator() == LogicalOperator.AND;
+        Truth absorbing = and ? Truth.FALSE : Truth.TRUE;
+        Truth neutral = and ? Truth.TRUE : Truth.FALSE;
+        Map<String, Expr> operands = new LinkedHashMap<>();
+        for (Expr operand : logical.operands()) {
+            Result result = simplify(operand);
+            if (result.truth() == absorbing) {
+                return result;
+            }
+            if (result.truth() != neutral) {
+                add(operands, logical.operator(), result.expr());
+            }
+        }
+        // Group the comparisons by key, each group taking the place of its first comparison
+        Map<String, List<Expr>> groups = new LinkedHashMap<>();
+        List<Object> layout = new ArrayList<>();
+        for (Expr operand : operands.values()) {
+            String key = switch (operand) {
+                case Expr.Comparison comparison -> comparison.key();
+                case Expr.In in -> in.key();
+                case Expr.Logical ignored -> null;
+            };
+            if (key == null) {
+                layout.add(operand);
+            } else {
+                if (!groups.containsKey(key)) {
+                    layout.add(key);
+                }
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(operand);
+            }
+        }
+        Map<String, Expr> simplified = new LinkedHashMap<>();
+        for (Object item : layout) {
+            if (item instanceof Expr operand) {
+                simplified.putIfAbsent(canonical(operand), operand);
+                continue;
+            }
+            String key = (String) item;
+            Result result = and ? conjoin(key, groups.get(key)) : disjoin(key, groups.get(key));
+            if (result.truth() == absorbing) {
+                return result;
+            }
+            if (result.truth() != neutral) {
+                add(simplified, logical.operator(), result.expr());
+            }
+        }
+        if (simplified.isEmpty()) {
+            return and ? Result.TRUE : Result.FALSE;
+        }
+        if (simplified.size() == 1) {
+            return unknown(simplified.values().iterator().next());
+        }
+        return unknown(new Expr.Logical(logical.operator(), new ArrayList<>(simplified.values())));
+    }
+
+    /**
+     * Simplifies the comparisons on one key of an {@code &&} chain.
+     */
+    private Result conjoin(String key, List<Expr> comparisons) {
+        Literal equal = null;
+        Bound lower = null;
+        Bound upper = null;
+        List<Literal> notEqual = new ArrayList<>();
+        List<List<Literal>> sets = new ArrayList<>();
+        List<Expr> kept = new ArrayList<>();
+        for (Expr expr : comparisons) {
+            if (expr instanceof Expr.In in) {
+                sets.add(literals(in.values()));
+                continue;
+            }
+            Expr.Comparison comparison = (Expr.Comparison) expr;
+            Literal literal = comparison.value();
+            switch (comparison.operator()) {
+                case EQ -> {
+                    if (equal == null) {
+                        equal = literal;
+                    } else if (consistent(equal, literal)) {
+                        if (compare(equal, literal) != 0) {
+                            return Result.FALSE;
+                        }
+                    } else {
+                        kept.add(comparison);
+                    }
+                }
+                case NOT -> notEqual.add(literal);
+                case GT, GTE -> {
+                    Bound bound = new Bound(literal, comparison.operator() == ComparisonOperator.GTE);
+                    if (lower == null) {
+                        lower = bound;
+                    } else if (consistent(lower.literal(), literal)) {
+                        lower = pick(lower, bound, 1, false);
+                    } else {
+                        kept.add(comparison);
+                    }
+                }
+                case LT, LTE -> {
+                    Bound bound = new Bound(literal, comparison.operator() == ComparisonOperator.LTE);
+                    if (upper == null) {
+                        upper = bound;
+                    } else if (consistent(upper.literal(), literal)) {
+                        upper = pick(upper, bound, -1, false);
+                    } else {
+                        kept.add(comparison);
+                    }
+                }
+                case IN -> throw new IllegalArgumentException("IN: is not a binary comparison");
+            }
+        }
+        if (lower != null && upper != null && consistent(lower.literal(), upper.literal())) {
+            int result = compare(lower.literal(), upper.literal());
+            if (result > 0 || (result == 0 && !(lower.inclusive() && upper.inclusive()))) {
+                return Result.FALSE;
+            }
+            if (result == 0 && (equal == null || consistent(equal, lower.literal()))) {
+                // gte: v && lte: v is eq: v
+                if (equal != null && compare(equal, lower.literal()) != 0) {
+                    return Result.FALSE;
+                }
+                equal = lower.literal();
+                lower = null;
+                upper = null;
+            }
+        }
+        if (equal != null) {
+            if (lower != null && consistent(equal, lower.literal())) {
+                if (!within(equal, lower, 1)) {
+                    return Result.FALSE;
+                }
+                lower = null;
+            }
+            if (upper != null && consistent(equal, upper.literal())) {
+                if (!within(equal, upper, -1)) {
+                    return Result.FALSE;
+                }
+                upper = null;
+            }
+            List<Literal> remaining = new ArrayList<>();
+            for (Literal literal : notEqual) {
+                if (!consistent(equal, literal)) {
+                    remaining.add(literal);
+                } else if (compare(equal, literal) == 0) {
+                    return Result.FALSE;
+                }
+            }
+            notEqual = remaining;
+            List<List<Literal>> remainingSets = new ArrayList<>();
+            for (List<Literal> set : sets) {
+                Literal eq = equal;
+                if (!set.stream().allMatch(literal -> consistent(eq, literal))) {
+                    remainingSets.add(set);
+                } else if (set.stream().noneMatch(literal -> compare(eq, literal) == 0)) {
+                    return Result.FALSE;
+                }
+            }
+            sets = remainingSets;
+        }
+        List<Expr> operands = new ArrayList<>();
+        if (equal != null) {
+            operands.add(new Expr.Comparison(key, ComparisonOperator.EQ, equal.text()));
+        }
+        if (lower != null) {
+            operands.add(new Expr.Comparison(key, lower.inclusive() ? ComparisonOperator.GTE : ComparisonOperator.GT,
+                    lower.literal().text()));
+        }
+        if (upper != null) {
+            operands.add(new Expr.Comparison(key, upper.inclusive() ? ComparisonOperator.LTE : ComparisonOperator.LT,
+                    upper.literal().text()));
+        }
+        for (Literal literal : notEqual) {
+            operands.add(new Expr.Comparison(key, ComparisonOperator.NOT, literal.text()));
+        }
+        for (List<Literal> set : sets) {
+            operands.add(in(key, set));
+        }
+        operands.addAll(kept);
+        return combine(LogicalOperator.AND, operands);
+    }
+
+    /**
+     * Simplifies the comparisons on one key of an {@code ||} chain.
+     */
+    private Result disjoin(String key, List<Expr> comparisons) {
+        boolean nonNull = nonNullKeys.contains(key);
+        List<Literal> members = new ArrayList<>();
+        Bound lower = null;
+        Bound upper = null;
+        List<Literal> notEqual = new ArrayList<>();
+        List<Expr> kept = new ArrayList<>();
+        for (Expr expr : comparisons) {
+            if (expr instanceof Expr.In in) {
+                members.addAll(literals(in.values()));
+                continue;
+            }
+            Expr.Comparison comparison = (Expr.Comparison) expr;
+            Literal literal = comparison.value();
+            switch (comparison.operator()) {
+                case EQ -> members.add(literal);
+                case NOT -> notEqual.add(literal);
+                case GT, GTE -> {
+                    Bound bound = new Bound(literal, comparison.operator() == ComparisonOperator.GTE);
+                    if (lower == null) {
+                        lower = bound;
+                    } else if (consistent(lower.literal(), literal)) {
+                        lower = pick(lower, bound, -1, true);
+                    } else {
+                        kept.add(comparison);
+                    }
+                }
+                case LT, LTE -> {
+                    Bound bound = new Bound(literal, comparison.operator() == ComparisonOperator.LTE);
+                    if (upper == null) {
+                        upper = bound;
+                    } else if (consistent(upper.literal(), literal)) {
+                        upper = pick(upper, bound, 1, true);
+                    } else {
+                        kept.add(comparison);
+                    }
+                }
+                case IN -> throw new IllegalArgumentException("IN: is not a binary comparison");
+            }
+        }
+        if (lower != null && upper != null && consistent(lower.literal(), upper.literal())) {
+            int result = compare(upper.literal(), lower.literal());
+            if (result > 0 || (result == 0 && (lower.inclusive() || upper.inclusive()))) {
+                if (nonNull) {
+                    return Result.TRUE;
+                }
+            } else if (result == 0) {
+                // lt: v || gt: v is not: v
+                notEqual.add(lower.literal());
+                lower = null;
+                upper = null;
+            }
+        }
+        if (notEqual.size() > 1) {
+            for (Literal literal : notEqual) {
+                if (consistent(notEqual.getFirst(), literal) && compare(notEqual.getFirst(), literal) != 0) {
+                    // Every value differs from one of them
+                    if (nonNull) {
+                        return Result.TRUE;
+                    }
+                    break;
+                }
+            }
+        }
+        List<Literal> remaining = new ArrayList<>();
+        for (Literal member : literals(members)) {
+            boolean implied = (lower != null && consistent(member, lower.literal()) && within(member, lower, 1))
+                    || (upper != null && consistent(member, upper.literal()) && within(member, upper, -1));
+            for (Literal literal : notEqual) {
+                if (consistent(member, literal)) {
+                    if (compare(member, literal) != 0) {
+                        implied = true;
+                    } else if (nonNull) {
+                        // a eq: v || a not: v
+                        return Result.TRUE;
+                    }
+                }
+            }
+            if (!implied) {
+                remaining.add(member);
+            }
+        }
+        List<Expr> operands = new ArrayList<>();
+        if (!remaining.isEmpty()) {
+            operands.add(in(key, remaining));
+        }
+        if (lower != null) {
+            operands.add(new Expr.Comparison(key, lower.inclusive() ? ComparisonOperator.GTE : ComparisonOperator.GT,
+                    lower.literal().text()));
+        }
+        if (upper != null) {
+            operands.add(new Expr.Comparison(key, upper.inclusive() ? ComparisonOperator.LTE : ComparisonOperator.LT,
+                    upper.literal().text()));
+        }
+        for (Literal literal : notEqual) {
+            operands.add(new Expr.Comparison(key, ComparisonOperator.NOT, literal.text()));
+        }
+        operands.addAll(kept);
+        return combine(LogicalOperator.OR, operands);
+    }
+
+    /**
+     * Of two consistent bounds, returns the one further in the given direction: 1 for the greater literal, -1 for the
+     * lesser one. On equal literals, returns the inclusive bound if {@code inclusive} is set, the exclusive one
+     * otherwise.
+     */
+    private static Bound pick(Bound bound, Bound other, int direction, boolean inclusive) {
+        int result = compare(other.literal(), bound.literal()) * direction;
+        if (result != 0) {
+            return result > 0 ? other : bound;
+        }
+        return bound.inclusive() == inclusive ? bound : other;
+    }
+
+    /**
+     * Tells whether the literal satisfies the bound, a lower bound when {@code side} is 1 and an upper bound when it
+     * is -1.
+     */
+    private static boolean within(Literal literal, Bound bound, int side) {
+        int result = compare(literal, bound.literal()) * side;
+        return result > 0 || (result == 0 && bound.inclusive());
+    }
+
+    /**
+     * Tells whether two literals order every row value the same way, so their relative order tells how the
+     * comparisons with them relate. Strings compare any value by its text. Numbers compare numeric values by value
+     * and other values by text, so both orders must agree, and integers must convert to doubles exactly.
+     */
+    private static boolean consistent(Literal literal, Literal other) {
+        Object a = literal.value();
+        Object b = other.value();
+        if (a instanceof String && b instanceof String) {
+            return true;
+        }
+        if (!(a instanceof Number) || !(b instanceof Number) || !exact(a) || !exact(b)) {
+            return false;
+        }
+        return Integer.signum(numeric(a).compareTo(numeric(b))) == Integer.signum(text(a).compareTo(text(b)));
+    }
+
+    private static boolean exact(Object number) {
+        return !(number instanceof Long value) || Math.abs(value) <= MAX_EXACT_DOUBLE;
+    }
+
+    private static int compare(Literal literal, Literal other) {
+        if (literal.value() instanceof String a && other.value() instanceof String b) {
+            return Integer.signum(a.compareTo(b));
+        }
+        return Integer.signum(numeric(literal.value()).compareTo(numeric(other.value())));
+    }
+
+    private static BigDecimal numeric(Object number) {
+        return number instanceof BigDecimal decimal ? decimal : BigDecimal.valueOf((Long) number);
+    }
+
+    private static String text(Object number) {
+        return number instanceof BigDecimal decimal ? decimal.toPlainString() : number.toString();
+    }
+
+    /**
+     * Parses the literals, dropping the ones with the same value.
+     */
+    private static List<Literal> literals(List<Literal> all) {
+        Map<Object, Literal> literals = new LinkedHashMap<>();
+        for (Literal literal : all) {
+            literals.putIfAbsent(literal.value(), literal);
+        }
+        return new ArrayList<>(literals.values());
+    }
+
+    private static Expr in(String key, List<Literal> literals) {
+        if (literals.size() == 1) {
+            return new Expr.Comparison(key, ComparisonOperator.EQ, literals.getFirst().text());
+        }
+        return new Expr.In(key, literals.stream().map(Literal::text).toList());
+    }
+
+    /**
+     * Adds the operand, or the operands of a chain of the same operator, unless an equal operand is already there.
+     */
+    private static void add(Map<String, Expr> operands, LogicalOperator operator, Expr operand) {
+        if (operand instanceof Expr.Logical logical && logical.operator() == operator) {
+            for (Expr nested : logical.operands()) {
+                operands.putIfAbsent(canonical(nested), nested);
+            }
+        } else {
+            operands.putIfAbsent(canonical(operand), operand);
+        }
+    }
+
+    /**
+     * Text of the expression that ignores the order of the operands of logical operators, so operands equal up to
+     * that order are recognized as duplicates.
+     */
+    static String canonical(Expr expr) {
+        if (!(expr instanceof Expr.Logical logical)) {
+            return expr.toString();
+        }
+        return logical.operands().stream()
+                .map(operand -> "(" + canonical(operand) + ")")
+                .sorted()
+                .collect(Collectors.joining(" " + logical.operator().symbol + " "));
+    }
+
+    private static Result combine(LogicalOperator operator, List<Expr> operands) {
+        if (operands.isEmpty()) {
+            return operator == LogicalOperator.AND ? Result.TRUE : Result.FALSE;
+        }
+        return unknown(operands.size() == 1 ? operands.getFirst() : new Expr.Logical(operator, operands));
+    }
+
+    private static Result unknown(Expr expr) {
+        return new Result(Truth.UNKNOWN, expr);
+    }
+}
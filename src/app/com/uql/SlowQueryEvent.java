@@ -0,0 +1,31 @@
+package com.uql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event committed for every phase of a query that takes longer than the threshold of
+ * {@link QueryMetrics}.
+ */
+@Name("com.uql.SlowQuery")
+@Label("Slow UQL Query")
+@Category("UQL")
+@Description("A phase of a UQL query that took longer than the slow query threshold")
+@StackTrace(false)
+final class SlowQueryEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Query")
+    String query;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
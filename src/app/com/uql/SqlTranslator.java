@@ -0,0 +1,123 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates UQL expressions into parameterized SQL {@code WHERE} clauses. Literals never reach the SQL text: each one
+ * becomes a {@code ?} placeholder and a typed parameter, so queries that differ only in their literals produce the
+ * same SQL and can share a prepared statement plan. {@code IN:} lists are padded to the next power of two by
+ * repeating their last literal, which keeps the number of distinct texts small without changing the result.
+ * <p>
+ * Only keys of the column whitelist may be queried, each one is written as the column it maps to.
+ * Comparisons follow the semantics of the database, where a null column satisfies no comparison.
+ */
+public class SqlTranslator {
+
+    final Map<String, String> columns;
+
+    /**
+     * @param columns the queryable keys and the SQL column each one maps to
+     */
+    public SqlTranslator(Map<String, String> columns) {
+        this.columns = Map.copyOf(columns);
+    }
+
+    /**
+     * A {@code WHERE} clause, without the keyword, and the parameters of its placeholders in order.
+     */
+    public record SqlQuery(String where, List<Object> parameters) {
+        public SqlQuery {
+            parameters = List.copyOf(parameters);
+        }
+
+        /**
+         * Sets the parameters on a statement prepared with this clause, starting at the given parameter index.
+         *
+         * @return the index following the last parameter set
+         */
+        public int bind(PreparedStatement statement, int firstIndex) throws SQLException {
+            int index = firstIndex;
+            for (Object parameter : parameters) {
+                switch (parameter) {
+                    case Long number -> statement.setLong(index, number);
+                    case BigDecimal decimal -> statement.setBigDecimal(index, decimal);
+                    default -> statement.setString(index, parameter.toString());
+                }
+                index++;
+            }
+            return index;
+        }
+    }
+
+    public SqlQuery translate(Node tree) {
+        return translate(Expr.of(tree));
+    }
+
+    public SqlQuery translate(Expr expr) {
+        StringBuilder where = new StringBuilder();
+        List<Object> parameters = new ArrayList<>();
+        append(expr, where, parameters);
+        return new SqlQuery(where.toString(), parameters);
+    }
+
+    private void append(Expr expr, StringBuilder where, List<Object> parameters) {
+        switch (expr) {
+            case Expr.Logical logical -> {
+                String separator = logical.operator() == LogicalOperator.AND ? " AND " : " OR ";
+                for (int i = 0; i < logical.operands().size(); i++) {
+                    if (i > 0) {
+                        where.append(separator);
+                    }
+                    Expr operand = logical.operands().get(i);
+                    if (operand instanceof Expr.Logical) {
+                        where.append('(');
+                        append(operand, where, parameters);
+                        where.append(')');
+                    } else {
+                        append(operand, where, parameters);
+                    }
+                }
+            }
+            case Expr.Comparison comparison -> {
+                where.append(column(comparison.key())).append(' ').append(sqlOperator(comparison.operator()))
+                        .append(" ?");
+                parameters.add(comparison.value().value());
+            }
+            case Expr.In in -> {
+                where.append(column(in.key())).append(" IN (");
+                List<Literal> literals = in.values();
+                int padded = Integer.highestOneBit(literals.size() * 2 - 1);
+                for (int i = 0; i < padded; i++) {
+                    where.append(i == 0 ? "?" : ", ?");
+                    parameters.add(literals.get(Math.min(i, literals.size() - 1)).value());
+                }
+                where.append(')');
+            }
+        }
+    }
+
+    private String column(String key) {
+        String column = columns.get(key);
+        if (column == null) {
+            throw new UQLParseException("Unknown key '" + key + "'");
+        }
+        return column;
+    }
+
+    private static String sqlOperator(ComparisonOperator operator) {
+        return switch (operator) {
+            case EQ -> "=";
+            case NOT -> "<>";
+            case GT -> ">";
+            case GTE -> ">=";
+            case LT -> "<";
+            case LTE -> "<=";
+            case IN -> throw new IllegalArgumentException("IN: is not a binary comparison");
+        };
+    }
+}
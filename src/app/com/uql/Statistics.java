@@ -0,0 +1,198 @@
+package com.uql;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per key statistics of a dataset, used by {@link QueryOptimizer} to estimate how many rows a comparison selects.
+ * Each key records its null and distinct counts, the frequencies of its most common values and equi-depth histograms
+ * of its values: one over the numeric values and one over the text of the others, since {@link Comparisons} orders
+ * them differently.
+ */
+public final class Statistics {
+
+    static final int BUCKETS = 32;
+    static final int MOST_COMMON = 32;
+
+    private final Map<String, KeyStatistics> keys;
+
+    private Statistics(Map<String, KeyStatistics> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Collects the statistics of the given keys over all rows.
+     */
+    public static <T> Statistics collect(List<T> rows, FieldAccessor<T> accessor, String... keys) {
+        Map<String, KeyStatistics> statistics = new HashMap<>();
+        for (String key : keys) {
+            statistics.put(key, new KeyStatistics(rows, accessor.getter(key)));
+        }
+        return new Statistics(statistics);
+    }
+
+    /**
+     * Returns the statistics of the key, or null when they were not collected.
+     */
+    public KeyStatistics of(String key) {
+        return keys.get(key);
+    }
+
+    public static final class KeyStatistics {
+
+        private final int rowCount;
+        private final int nullCount;
+        private final int distinctCount;
+        private final int numericCount;
+        // Row counts of the most common values, numbers as doubles and anything else as its text
+        private final Map<Object, Integer> mostCommon = new HashMap<>();
+        private final int mostCommonCount;
+        // Values at the bucket boundaries, BUCKETS + 1 of them, or none when there are no such values
+        private final double[] numericBounds;
+        private final String[] textBounds;
+
+        <T> KeyStatistics(List<T> rows, Function<T, Object> getter) {
+            Map<Object, Integer> counts = new HashMap<>();
+            List<Double> numbers = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            int nulls = 0;
+            for (T row : rows) {
+                Object value = getter.apply(row);
+                if (value == null) {
+                    nulls++;
+                    continue;
+                }
+                if (value instanceof Number number) {
+                    double converted = number.doubleValue();
+                    numbers.add(converted);
+                    counts.merge(converted, 1, Integer::sum);
+                } else {
+                    texts.add(value.toString());
+                    counts.merge(value.toString(), 1, Integer::sum);
+                }
+            }
+            this.rowCount = rows.size();
+            this.nullCount = nulls;
+            this.distinctCount = counts.size();
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<Object, Integer>comparingByValue().reversed())
+                    .limit(MOST_COMMON)
+                    .forEach(entry -> mostCommon.put(entry.getKey(), entry.getValue()));
+            this.mostCommonCount = mostCommon.values().stream().mapToInt(Integer::intValue).sum();
+            this.numericCount = numbers.size();
+            double[] sortedNumbers = numbers.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            this.numericBounds = new double[sortedNumbers.length == 0 ? 0 : BUCKETS + 1];
+            for (int i = 0; i < numericBounds.length; i++) {
+                numericBounds[i] = sortedNumbers[(int) ((long) i * (sortedNumbers.length - 1) / BUCKETS)];
+            }
+            String[] sortedTexts = texts.toArray(new String[0]);
+            Arrays.sort(sortedTexts);
+            this.textBounds = new String[sortedTexts.length == 0 ? 0 : BUCKETS + 1];
+            for (int i = 0; i < textBounds.length; i++) {
+                textBounds[i] = sortedTexts[(int) ((long) i * (sortedTexts.length - 1) / BUCKETS)];
+            }
+        }
+
+        public int rowCount() {
+            return rowCount;
+        }
+
+        public int nullCount() {
+            return nullCount;
+        }
+
+        public int distinctCount() {
+            return distinctCount;
+        }
+
+        /**
+         * Estimated fraction of the rows whose value compares with the literal as the operator requires.
+         */
+        public double selectivity(ComparisonOperator operator, Object literal) {
+            if (rowCount == 0) {
+                return 0;
+            }
+            double present = (double) (rowCount - nullCount) / rowCount;
+            double equal = equal(literal);
+            double below = below(literal) * present;
+            double selectivity = switch (operator) {
+                case EQ, IN -> equal;
+                case NOT -> present - equal;
+                case LT -> below;
+                case LTE -> below + equal;
+                case GT -> present - below - equal;
+                case GTE -> present - below;
+            };
+            return Math.clamp(selectivity, 0, present);
+        }
+
+        /**
+         * Estimated fraction of the rows equal to the literal: its frequency when it is a common value, an even share
+         * of the remaining rows otherwise.
+         */
+        private double equal(Object literal) {
+            Object value = literal instanceof Number number ? (Object) number.doubleValue() : literal.toString();
+            Integer count = mostCommon.get(value);
+            if (count != null) {
+                return (double) count / rowCount;
+            }
+            int others = distinctCount - mostCommon.size();
+            return others == 0 ? 0 : (double) (rowCount - nullCount - mostCommonCount) / others / rowCount;
+        }
+
+        /**
+         * Estimated fraction of the values less than the literal.
+         */
+        private double below(Object literal) {
+            int present = rowCount - nullCount;
+            if (present == 0) {
+                return 0;
+            }
+            double numericShare = (double) numericCount / present;
+            String text = literal instanceof BigDecimal decimal ? decimal.toPlainString() : literal.toString();
+            double textBelow = textBounds.length == 0 ? 0 : textBelow(text);
+            if (literal instanceof Number number) {
+                double numericBelow = numericBounds.length == 0 ? 0 : numericBelow(number.doubleValue());
+                return numericShare * numericBelow + (1 - numericShare) * textBelow;
+            }
+            // Numbers compared as text are spread all over, count half of them
+            return numericShare * 0.5 + (1 - numericShare) * textBelow;
+        }
+
+        private double numericBelow(double value) {
+            if (value <= numericBounds[0]) {
+                return 0;
+            }
+            if (value > numericBounds[BUCKETS]) {
+                return 1;
+            }
+            int bucket = 0;
+            while (bucket < BUCKETS - 1 && numericBounds[bucket + 1] < value) {
+                bucket++;
+            }
+            double low = numericBounds[bucket];
+            double high = numericBounds[bucket + 1];
+            double within = high > low ? (value - low) / (high - low) : 0.5;
+            return (bucket + within) / BUCKETS;
+        }
+
+        private double textBelow(String value) {
+            if (value.compareTo(textBounds[0]) <= 0) {
+                return 0;
+            }
+            if (value.compareTo(textBounds[BUCKETS]) > 0) {
+                return 1;
+            }
+            int bucket = 0;
+            while (bucket < BUCKETS - 1 && textBounds[bucket + 1].compareTo(value) < 0) {
+                bucket++;
+            }
+            return (bucket + 0.5) / BUCKETS;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.uql;
+
+import java.util.Collection;
+
+/**
+ * Immutable open addressing set of strings that keeps the hash of every entry, so a probe only calls
+ * {@link String#equals} when the hashes match.
+ */
+final class StringSet {
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final int size;
+
+    private StringSet(String[] keys, int[] hashes, int size) {
+        this.keys = keys;
+        this.hashes = hashes;
+        this.size = size;
+    }
+
+    static StringSet of(Collection<String> values) {
+        int capacity = Integer.highestOneBit(Math.max(1, values.size() * 2 - 1)) << 1;
+        String[] keys = new String[capacity];
+        int[] hashes = new int[capacity];
+        int size = 0;
+        for (String value : values) {
+            int hash = spread(value.hashCode());
+            int index = hash & (capacity - 1);
+            while (keys[index] != null && !(hashes[index] == hash && keys[index].equals(value))) {
+                index = (index + 1) & (capacity - 1);
+            }
+            if (keys[index] == null) {
+                keys[index] = value;
+                hashes[index] = hash;
+                size++;
+            }
+        }
+        return new StringSet(keys, hashes, size);
+    }
+
+    boolean contains(String value) {
+        int hash = spread(value.hashCode());
+        int mask = keys.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            String key = keys[index];
+            if (key == null) {
+                return false;
+            }
+            if (hashes[index] == hash && key.equals(value)) {
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
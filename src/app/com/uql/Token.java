@@ -1,50 +1,128 @@
 package com.uql;
 
-import java.util.Objects;
-
+/**
+ * A token is a view over a slice of the query text. The text is only copied
+ * into a {@link String} when {@link #value()} is called.
+ */
 public class Token {
+    private static final Token CLOSING_PAREN = new Token(")", TokenType.SEPARATOR);
+    private static final Token OPENING_PAREN = new Token("(", TokenType.SEPARATOR);
+    private static final Token CLOSING_BRACKET = new Token("]", TokenType.SEPARATOR);
+    private static final Token OPENING_BRACKET = new Token("[", TokenType.SEPARATOR);
+    private static final Token COMMA = new Token(",", TokenType.SEPARATOR);
+    private static final Token EOF = new Token("NULL", TokenType.EOF);
+    private static final Token COMPARISON_OP_IN = new Token("IN:", TokenType.COMPARISON_OPERATOR);
+
     String value;
     TokenType type;
+    CharSequence source;
+    int start;
+    int length;
 
     public Token(String value, TokenType type) {
+        this(value, 0, value.length(), type);
         this.value = value;
+    }
+
+    public Token(CharSequence source, int start, int length, TokenType type) {
+        this.source = source;
+        this.start = start;
+        this.length = length;
         this.type = type;
     }
 
     public static Token closingParen() {
-        return new Token(")", TokenType.SEPARATOR);
+        return CLOSING_PAREN;
     }
 
     public static Token openingParen() {
-        return new Token("(", TokenType.SEPARATOR);
+        return OPENING_PAREN;
     }
 
     public static Token closingBracket() {
-        return new Token("]", TokenType.SEPARATOR);
+        return CLOSING_BRACKET;
     }
 
     public static Token openingBracket() {
-        return new Token("[", TokenType.SEPARATOR);
+        return OPENING_BRACKET;
+    }
+
+    public static Token comma() {
+        return COMMA;
+    }
+
+    public static Token eof() {
+        return EOF;
     }
 
     public static Token comparisonOpIn() {
-        return new Token("IN:", TokenType.COMPARISON_OPERATOR);
+        return COMPARISON_OP_IN;
+    }
+
+    public String value() {
+        if (value == null) {
+            value = source.subSequence(start, start + length).toString();
+        }
+        return value;
+    }
+
+    public TokenType type() {
+        return type;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    /**
+     * Compares the token text with the given chars without creating a String.
+     */
+    public boolean contentEquals(CharSequence chars) {
+        if (chars.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != chars.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Token token = (Token) o;
-        return Objects.equals(value, token.value) && type == token.type;
+        if (type != token.type || length != token.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value, type);
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + charAt(i);
+        }
+        return 31 * hash + type.hashCode();
     }
 
     @Override
     public String toString() {
-        return type.name() + "(\"" + value + "\")";
+        return type.name() + "(\"" + value() + "\")";
     }
 }
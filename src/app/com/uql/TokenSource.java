@@ -0,0 +1,10 @@
+package com.uql;
+
+/**
+ * Pull-based supply of tokens. Once the input is exhausted every call returns
+ * an {@link TokenType#EOF} token.
+ */
+@FunctionalInterface
+public interface TokenSource {
+    Token nextToken();
+}
@@ -1,145 +1,139 @@
 package com.uql;
 
-import java.util.Arrays;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.uql.TokenType.COMPARISON_OPERATOR;
+import static com.uql.TokenType.EOF;
 import static com.uql.TokenType.IDENTIFIER;
 import static com.uql.TokenType.LITERAL;
 import static com.uql.TokenType.LOGICAL_OPERATOR;
 import static com.uql.TokenType.SEPARATOR;
-import static java.lang.String.valueOf;
 
 
-public class Tokenizer {
+public class Tokenizer implements TokenSource {
 
     int lCursor = 0;
     int rCursor = 0;
-    char[] chars;
-    Stack<Token> tokens = new Stack<>();
+    CharSequence source;
+    int sourceLength;
+    List<Token> tokens = new ArrayList<>();
 
-    public Tokenizer(String query) {
-        chars = query.toCharArray();
-        chars = Arrays.copyOf(chars, chars.length + 1);
-        chars[chars.length - 1] = 0x00; // null byte
+    // The last token matched by next()
+    TokenType tokenType;
+    int tokenStart;
+    int tokenLength;
+
+    public Tokenizer(CharSequence query) {
+        reset(query);
+    }
+
+    /**
+     * Points the tokenizer at a new query so the same instance can be reused.
+     * Tokens previously collected by {@link #tokenize()} are kept.
+     */
+    public final void reset(CharSequence query) {
+        source = query;
+        sourceLength = query.length();
+        lCursor = 0;
+        rCursor = 0;
+        tokenType = null;
+        tokenStart = 0;
+        tokenLength = 0;
     }
 
     /**
-     * This method starts from the current char and tries to match a token. In case of fail, it calls itself recursively
-     * attempting for the next token type and so on. If no token is match, it checks for the presence of invalid
-     * character and throw an error.
-     *
+     * Reads the whole query, collecting every token into {@link #tokens}.
      */
     public void tokenize() {
-        if (isEndOfStream()) {
-            return;
+        long start = QueryMetrics.start();
+        try {
+            Token token = nextToken();
+            while (token.type != TokenType.EOF) {
+                tokens.add(token);
+                token = nextToken();
+            }
+        } catch (RuntimeException e) {
+            QueryMetrics.failed(e);
+            throw e;
         }
-        skipIgnorableChars();
+        QueryMetrics.finished(QueryMetrics.Phase.TOKENIZE, start, source);
+    }
 
-        if (tokenizeLogicalOperator(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeCompOperator(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeCompOperatorIn(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeFilterKey(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeLiteral(currentChar(), currentChar(), 0)) {
-            tokenize();
-            return;
-        }
-        if (tokenizeOpParen(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeClParen(currentChar())) {
-            tokenize();
-            return;
-        }
-        if (tokenizeOpenBrackets(currentChar())) {
-            tokenize();
-            return;
+    /**
+     * Returns the next token as a view over the query text. Once the end of the query is reached, every call returns
+     * an EOF token.
+     */
+    @Override
+    public Token nextToken() {
+        if (next() == EOF) {
+            return Token.eof();
         }
-        if (tokenizeClosingBrackets(currentChar())) {
-            tokenize();
-            return;
+        return new Token(source, tokenStart, tokenLength, tokenType);
+    }
+
+    /**
+     * Starts from the current char and tries to match a token, attempting each token type in turn. If no token is
+     * matched, the current character is invalid and an error is thrown.
+     * <p>
+     * This is the allocation free mode of the tokenizer: no token object is created, the match is only described by
+     * {@link #tokenType()}, {@link #tokenStart()} and {@link #tokenLength()} until the next call.
+     */
+    public TokenType next() {
+        skipIgnorableChars();
+        if (isEndOfStream()) {
+            tokenType = EOF;
+            tokenStart = rCursor;
+            tokenLength = 0;
+            return EOF;
         }
-        if (tokenizeComma(currentChar())) {
-            tokenize();
-            return;
+        char c = currentChar();
+        boolean matched = tokenizeLogicalOperator(c)
+                || tokenizeCompOperator(c)
+                || tokenizeCompOperatorIn(c)
+                || tokenizeLiteral(c) // Before keys, which may start with a minus too
+                || tokenizeFilterKey(c)
+                || tokenizeSeparator(c);
+        if (!matched) {
+            // If no token is matched, the user typed an invalid character
+            throw new UQLLexicalException("Invalid character '" + c + "' " +
+                    "at column " + (rCursor + 1));
         }
+        return tokenType;
+    }
 
-        // If no token is matched, check for invalid character that the user
-        // may have typed
-        checkInvalidToken(currentChar());
+    public TokenType tokenType() {
+        return tokenType;
+    }
 
-        skipIgnorableChars();
+    public int tokenStart() {
+        return tokenStart;
+    }
 
-        tokenize();
+    public int tokenLength() {
+        return tokenLength;
     }
 
-    private void checkInvalidToken(char c) {
-        var ex = new UQLLexicalException("Invalid character '" + c + "' " +
-                "at column " + rCursor + 1);
-        if (c == 0x40) { //@
-            throw ex;
-        }
-        if (c == 0x3A) { //:
-            throw ex;
-        }
+    public CharSequence source() {
+        return source;
     }
 
     private boolean tokenizeCompOperatorIn(char c) {
-        int pos = rCursor;
-        int i = 0;
-        //variable to store next two chars initialized with null bytes
-        char[] opChars = new char[]{c, 0x00, 0x00};
-        while (pos < chars.length && i < 3) {
-            opChars[i] = chars[pos];
-            i++;
-            pos++;
-        }
         char I = 0x49;
         char N = 0x4E;
         char comma = 0x3A;
-        if (opChars[0] == I && opChars[1] == N && opChars[2] == comma) {
-            tokens.add(new Token(valueOf(opChars), COMPARISON_OPERATOR));
-            advanceRCur(3);
-            mvLCursorToR();
-            return true;
+        if (c == I && charAt(1) == N && charAt(2) == comma) {
+            return emit(COMPARISON_OPERATOR, 3);
         }
         return false;
     }
 
     private boolean tokenizeLogicalOperator(char c) {
-        if (c != 0x26 && c != 0x7C) {
-            return false;
+        if (c == 0x26 && charAt(1) == 0x26) { // &&
+            return emit(LOGICAL_OPERATOR, 2);
         }
-        char[] opChars = new char[]{c, 0x00};
-        int nextIndex = rCursor + 1;
-        int lastPos = chars.length - 1;
-        if (nextIndex < lastPos) {
-            var next = chars[nextIndex];
-            opChars[1] = next;
-            if (opChars[0] == 0x26 && opChars[1] == 0x26) { // &&
-                tokens.add(new Token(valueOf(opChars), LOGICAL_OPERATOR));
-                advanceRCur(2);
-                mvLCursorToR();
-                return true;
-            } else if (opChars[0] == 0x7C && opChars[1] == 0x7C) { // ||
-                tokens.add(new Token(valueOf(opChars), LOGICAL_OPERATOR));
-                advanceRCur(2);
-                mvLCursorToR();
-                return true;
-            }
+        if (c == 0x7C && charAt(1) == 0x7C) { // ||
+            return emit(LOGICAL_OPERATOR, 2);
         }
         return false;
     }
@@ -157,125 +151,65 @@ public class Tokenizer {
                 || currentChar() == 0x0A; // Line Feed
     }
 
-    private boolean isBlankSpace() {
-        return currentChar() == 0x20;
-    }
-
-    private boolean tokenizeComma(char c) {
-        if (c == 0x2C) {
-            tokens.add(new Token(getCursorValue(), SEPARATOR));
-            advanceRCur();
-            mvLCursorToR();
-            return true;
-        }
-        return false;
-    }
-
-    private boolean tokenizeOpenBrackets(char c) {
-        if (c == 0x5B) {
-            tokens.add(new Token(getCursorValue(), SEPARATOR));
-            advanceRCur();
-            mvLCursorToR();
-            return true;
-        }
-        return false;
-    }
-
-    private boolean tokenizeClosingBrackets(char c) {
-        if (c == 0x5D) { // Closing Brackets
-            tokens.add(new Token(getCursorValue(), SEPARATOR));
-            advanceRCur();
-            mvLCursorToR();
-            return true;
-        }
-        return false;
-    }
-
-    private boolean tokenizeClParen(char c) {
-        if (c == 0x29) { // Closing Parenthesis
-            tokens.add(new Token(getCursorValue(), SEPARATOR));
-            advanceRCur();
-            mvLCursorToR();
-            return true;
+    private boolean tokenizeSeparator(char c) {
+        if (c == 0x28 // Open Parenthesis
+                || c == 0x29 // Closing Parenthesis
+                || c == 0x5B // Open Brackets
+                || c == 0x5D // Closing Brackets
+                || c == 0x2C) { // Comma
+            return emit(SEPARATOR, 1);
         }
         return false;
     }
 
-    private boolean tokenizeOpParen(char c) {
-        if (c == 0x28) { // Open Parenthesis
-            tokens.add(new Token(getCursorValue(), SEPARATOR));
-            advanceRCur();
-            mvLCursorToR();
-            return true;
+    /**
+     * Numbers are an optional minus, digits and an optional fraction, like {@code -12.5}. Strings are quoted, a
+     * backslash escaping the char after it.
+     */
+    private boolean tokenizeLiteral(char c) {
+        int sign = c == 0x2D ? 1 : 0; // Minus
+        if (isNumber(charAt(sign))) {
+            int length = sign + 1;
+            while (isNumber(charAt(length))) {
+                length++;
+            }
+            if (charAt(length) == 0x2E && isNumber(charAt(length + 1))) { // Dot
+                length += 2;
+                while (isNumber(charAt(length))) {
+                    length++;
+                }
+            }
+            return emit(LITERAL, length);
         }
-        return false;
-    }
-
-    private boolean tokenizeLiteral(char firstChar, char c, int pos) {
-        if (isEndOfStream()) {
+        if (c != 0x22) { // Opening Quotes
             return false;
         }
-        if (isNumber(firstChar)) {
-            if (isNumber(c)) {
-                advanceRCur();
-                boolean number = isNumber(currentChar());
-                if (!number) {
-                    backwardRCur();
-                    tokens.add(new Token(getCursorValue(), LITERAL));
-                    advanceRCur();
-                    mvLCursorToR();
-                    return true;
-                }
-                tokenizeLiteral(firstChar, currentChar(), ++pos);
+        int length = 1;
+        while (charAt(length) != 0x22) { // Closing Quotes
+            if (rCursor + length >= sourceLength) {
+                throw new UQLLexicalException("Unterminated literal starting " +
+                        "at column " + (rCursor + 1));
             }
-        } else {
-            if (c != 0x22 && pos == 0) { // Opening Quotes
-                return false;
-            }
-            if (c == 0x22 && pos > 0) { // Closing Quotes
-                tokens.add(new Token(getCursorValue(), LITERAL));
-                advanceRCur();
-                mvLCursorToR();
-                return true;
-            }
-            advanceRCur();
-            tokenizeLiteral(firstChar, currentChar(), ++pos);
+            length += charAt(length) == 0x5C ? 2 : 1; // Backslash
         }
-        return false;
+        return emit(LITERAL, length + 1);
     }
 
     private boolean tokenizeFilterKey(char c) {
         if (isNumber(c)) { //filter key must not start with number
             return false;
         }
-        boolean isKeyChar = isKeyChar(c);
-        if (!isKeyChar) {
+        if (!isKeyChar(c)) {
             return false;
         }
-        while (isKeyChar && !isEndOfStream() && !isBlankSpace()) {
-            advanceRCur();
-            isKeyChar = isKeyChar(currentChar());
-        }
-        backwardRCur();
-        String val = getCursorValue();
-        if (!val.isEmpty()) {
-            tokens.add(new Token(val, IDENTIFIER));
+        int length = 1;
+        while (isKeyChar(charAt(length))) {
+            length++;
         }
-        advanceRCur();
-        mvLCursorToR();
-        return true;
+        return emit(IDENTIFIER, length);
     }
 
     private boolean tokenizeCompOperator(char c) {
-        int pos = rCursor;
-        int i = 0;
-        //variable to store next three chars initialized with null bytes
-        char[] opChars = new char[]{c, 0x00, 0x00, 0x00};
-        while (pos < chars.length && i < 4) {
-            opChars[i] = chars[pos];
-            i++;
-            pos++;
-        }
         char g = 0x67;
         char t = 0x74;
         char e = 0x65;
@@ -284,52 +218,33 @@ public class Tokenizer {
         char o = 0x6f;
         char q = 0x71;
         char comma = 0x3A;
-        if (opChars[0] == g && opChars[1] == t && opChars[2] == e && opChars[3] == comma) {
+        char c1 = charAt(1);
+        char c2 = charAt(2);
+        char c3 = charAt(3);
+        if (c == g && c1 == t && c2 == e && c3 == comma) {
             //gte:
-            tokens.add(new Token(valueOf(opChars), COMPARISON_OPERATOR));
-            advanceRCur(4);
-            mvLCursorToR();
-            return true;
-        } else if (opChars[0] == l && opChars[1] == t && opChars[2] == e && opChars[3] == comma) {
+            return emit(COMPARISON_OPERATOR, 4);
+        } else if (c == l && c1 == t && c2 == e && c3 == comma) {
             //lte:
-            tokens.add(new Token(valueOf(opChars), COMPARISON_OPERATOR));
-            advanceRCur(4);
-            mvLCursorToR();
-            return true;
-        } else if (opChars[0] == n && opChars[1] == o && opChars[2] == t && opChars[3] == comma) {
+            return emit(COMPARISON_OPERATOR, 4);
+        } else if (c == n && c1 == o && c2 == t && c3 == comma) {
             //not:
-            tokens.add(new Token(valueOf(opChars), COMPARISON_OPERATOR));
-            advanceRCur(4);
-            mvLCursorToR();
-            return true;
-        } else if (opChars[0] == e && opChars[1] == q && opChars[2] == comma) {
+            return emit(COMPARISON_OPERATOR, 4);
+        } else if (c == e && c1 == q && c2 == comma) {
             //eq:
-            tokens.add(new Token(valueOf(new char[]{opChars[0], opChars[1], opChars[2]}),
-                    COMPARISON_OPERATOR));
-            advanceRCur(3);
-            mvLCursorToR();
-            return true;
-        } else if (opChars[0] == g && opChars[1] == t && opChars[2] == comma) {
+            return emit(COMPARISON_OPERATOR, 3);
+        } else if (c == g && c1 == t && c2 == comma) {
             //gt:
-            tokens.add(new Token(valueOf(new char[]{opChars[0], opChars[1], opChars[2]}),
-                    COMPARISON_OPERATOR));
-            advanceRCur(3);
-            mvLCursorToR();
-            return true;
-        } else if (opChars[0] == l && opChars[1] == t && opChars[2] == comma) {
+            return emit(COMPARISON_OPERATOR, 3);
+        } else if (c == l && c1 == t && c2 == comma) {
             //lt:
-            tokens.add(new Token(valueOf(new char[]{opChars[0], opChars[1], opChars[2]}),
-                    COMPARISON_OPERATOR));
-            advanceRCur(3);
-            mvLCursorToR();
-            return true;
+            return emit(COMPARISON_OPERATOR, 3);
         }
-
         return false;
     }
 
     private boolean isEndOfStream() {
-        return currentChar() == 0x00;
+        return rCursor >= sourceLength;
     }
 
     private boolean isKeyChar(char c) {
@@ -346,7 +261,16 @@ public class Tokenizer {
     }
 
     private char currentChar() {
-        return chars[rCursor];
+        return charAt(0);
+    }
+
+    /**
+     * Looks ahead of the current char without moving the cursor. Positions past the end of the query read as the
+     * null byte.
+     */
+    private char charAt(int offset) {
+        int pos = rCursor + offset;
+        return pos < sourceLength ? source.charAt(pos) : 0x00;
     }
 
     private void advanceRCur() {
@@ -357,12 +281,16 @@ public class Tokenizer {
         rCursor = rCursor + count;
     }
 
-    private void backwardRCur() {
-        rCursor--;
-    }
-
-    private String getCursorValue() {
-        return new String(Arrays.copyOfRange(chars, lCursor, rCursor + 1));
+    /**
+     * Records the next {@code length} chars as the matched token and moves both cursors past it.
+     */
+    private boolean emit(TokenType type, int length) {
+        advanceRCur(length);
+        tokenType = type;
+        tokenStart = lCursor;
+        tokenLength = length;
+        mvLCursorToR();
+        return true;
     }
 
     private void mvLCursorToR() {
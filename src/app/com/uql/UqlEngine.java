@@ -0,0 +1,109 @@
+package com.uql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread safe entry point for reading queries. A {@link Tokenizer} and a {@link Parser} are mutable and meant for a
+ * single query at a time; the engine keeps a small pool of them and hands one to each call, so callers never share or
+ * allocate them.
+ * <p>
+ * The pool is a fixed array of slots claimed with an atomic swap rather than a {@link ThreadLocal}: virtual threads
+ * come and go by the thousand and would each keep their own copy, while the slots bound the pooled state to a few
+ * per core whatever the number of threads. A call that finds no free slot nearby allocates a fresh pair instead of
+ * waiting.
+ */
+public final class UqlEngine {
+
+    private static final int PROBES = 4; // Slots tried before giving up on the pool
+
+    private final AtomicReferenceArray<Scratch> pool;
+    private final int mask;
+
+    public UqlEngine() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates an engine pooling about {@code poolSize} tokenizers and parsers, rounded up to a power of two.
+     */
+    public UqlEngine(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive, got " + poolSize);
+        }
+        int slots = poolSize == 1 ? 1 : Integer.highestOneBit(poolSize - 1) << 1;
+        this.pool = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Parses the query into its {@link Expr} tree.
+     */
+    public Expr parse(CharSequence query) {
+        Scratch scratch = acquire();
+        try {
+            scratch.tokenizer.reset(query);
+            scratch.parser.reset(scratch.tokenizer);
+            return scratch.parser.parseExpr();
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * Returns the tokens of the query.
+     */
+    public List<Token> tokenize(CharSequence query) {
+        Scratch scratch = acquire();
+        try {
+            Tokenizer tokenizer = scratch.tokenizer;
+            tokenizer.reset(query);
+            List<Token> tokens = new ArrayList<>();
+            for (Token token = tokenizer.nextToken(); token.type != TokenType.EOF; token = tokenizer.nextToken()) {
+                tokens.add(token);
+            }
+            return tokens;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    private Scratch acquire() {
+        int start = slot();
+        for (int i = 0; i < PROBES; i++) {
+            Scratch scratch = pool.getAndSet((start + i) & mask, null);
+            if (scratch != null) {
+                return scratch;
+            }
+        }
+        return new Scratch();
+    }
+
+    /**
+     * Returns the scratch to the pool, dropping its references to the query so pooled state does not keep it alive.
+     */
+    private void release(Scratch scratch) {
+        scratch.parser.clear();
+        scratch.tokenizer.reset("");
+        int start = slot();
+        for (int i = 0; i < PROBES; i++) {
+            if (pool.compareAndSet((start + i) & mask, null, scratch)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Spreads the threads over the slots, so threads running on different cores rarely contend for the same one.
+     */
+    private int slot() {
+        long id = Thread.currentThread().threadId();
+        return (int) (id * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    }
+
+    private static final class Scratch {
+        final Tokenizer tokenizer = new Tokenizer("");
+        final Parser parser = new Parser();
+    }
+}
@@ -0,0 +1,302 @@
+package com.uql;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The UQL expression of a raw URI query parameter, {@code <query_param_key> "=" <uql_expr>}, read straight from the
+ * request bytes. Percent escapes, {@code +} as space and UTF-8 are decoded on the fly while the {@link Tokenizer}
+ * reads it, so the query is never decoded into an intermediate String. Malformed UTF-8, overlong forms included, is
+ * rejected.
+ * <p>
+ * An instance keeps a window of decoded chars and moves it as chars are read, so it is not thread-safe: each thread
+ * must read its own instance.
+ */
+public final class UriQuery implements CharSequence {
+
+    private static final int WINDOW = 16; // Decoded chars kept around for the tokenizer look ahead
+    private static final int WINDOW_MASK = WINDOW - 1;
+    private static final int CHECKPOINT_SHIFT = 5; // A checkpoint every 32 chars
+
+    private final ByteBuffer bytes;
+    private final int keyStart;
+    private final int keyEnd;
+    private final int valueStart;
+    private final int valueEnd;
+    private final int length;
+    // Byte position of the code point holding every 32nd char, shifted left by one. The low bit tells whether the
+    // char is the low half of a surrogate pair.
+    private final int[] checkpoints;
+
+    private final char[] window = new char[WINDOW];
+    private int windowStart;
+    private int windowEnd;
+    private int bytePos;
+    private char pendingLow;
+    private int nextPos;
+
+    private UriQuery(ByteBuffer bytes, int keyStart, int keyEnd, int valueEnd) {
+        this.bytes = bytes;
+        this.keyStart = keyStart;
+        this.keyEnd = keyEnd;
+        this.valueStart = keyEnd + 1;
+        this.valueEnd = valueEnd;
+        this.checkpoints = new int[((valueEnd - valueStart) >> CHECKPOINT_SHIFT) + 1];
+        this.length = scan();
+        seek(0);
+    }
+
+    /**
+     * Reads a single {@code key=expression} query parameter. Everything after the first {@code =} is the expression.
+     */
+    public static UriQuery of(byte[] parameter) {
+        return of(ByteBuffer.wrap(parameter));
+    }
+
+    public static UriQuery of(ByteBuffer parameter) {
+        int start = parameter.position();
+        int end = parameter.limit();
+        int equals = indexOf(parameter, (byte) 0x3D, start, end); // =
+        if (equals < 0) {
+            throw new UQLParseException("Expect query parameter key followed by '='");
+        }
+        return new UriQuery(parameter, start, equals, end);
+    }
+
+    /**
+     * Looks for the parameter named {@code key} among the {@code &} separated parameters of a raw URI query string.
+     * Returns null when the query has no such parameter.
+     */
+    public static UriQuery parameter(byte[] rawQuery, String key) {
+        return parameter(ByteBuffer.wrap(rawQuery), key);
+    }
+
+    public static UriQuery parameter(ByteBuffer rawQuery, String key) {
+        int start = rawQuery.position();
+        int limit = rawQuery.limit();
+        while (start <= limit) {
+            int end = indexOf(rawQuery, (byte) 0x26, start, limit); // &
+            if (end < 0) {
+                end = limit;
+            }
+            int equals = indexOf(rawQuery, (byte) 0x3D, start, end); // =
+            if (equals >= 0 && keyEquals(rawQuery, start, equals, key)) {
+                return new UriQuery(rawQuery, start, equals, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * The decoded {@code <query_param_key>}.
+     */
+    public String key() {
+        return decode(bytes, keyStart, keyEnd);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index < windowStart || index < windowEnd - WINDOW || index >= windowEnd + WINDOW) {
+            seek(index);
+        }
+        while (windowEnd <= index) {
+            decodeNextChar();
+        }
+        return window[index & WINDOW_MASK];
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+
+    /**
+     * Counts the decoded chars of the expression, recording the checkpoints on the way.
+     */
+    private int scan() {
+        int count = 0;
+        int pos = valueStart;
+        checkpoints[0] = pos << 1;
+        while (pos < valueEnd) {
+            if ((count & ((1 << CHECKPOINT_SHIFT) - 1)) == 0) {
+                checkpoints[count >> CHECKPOINT_SHIFT] = pos << 1;
+            }
+            int codePoint = decodeCodePoint(pos);
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                count++;
+                if ((count & ((1 << CHECKPOINT_SHIFT) - 1)) == 0) {
+                    checkpoints[count >> CHECKPOINT_SHIFT] = pos << 1 | 1;
+                }
+            }
+            count++;
+            pos = nextPos;
+        }
+        return count;
+    }
+
+    /**
+     * Moves the decoding cursor to the checkpoint before the given char index.
+     */
+    private void seek(int index) {
+        int checkpoint = checkpoints[index >> CHECKPOINT_SHIFT];
+        windowEnd = index >> CHECKPOINT_SHIFT << CHECKPOINT_SHIFT;
+        windowStart = windowEnd;
+        bytePos = checkpoint >>> 1;
+        pendingLow = 0;
+        if ((checkpoint & 1) == 1) {
+            pendingLow = Character.lowSurrogate(decodeCodePoint(bytePos));
+            bytePos = nextPos;
+        }
+    }
+
+    private void decodeNextChar() {
+        char c;
+        if (pendingLow != 0) {
+            c = pendingLow;
+            pendingLow = 0;
+        } else {
+            int codePoint = decodeCodePoint(bytePos);
+            bytePos = nextPos;
+            if (Character.isBmpCodePoint(codePoint)) {
+                c = (char) codePoint;
+            } else {
+                c = Character.highSurrogate(codePoint);
+                pendingLow = Character.lowSurrogate(codePoint);
+            }
+        }
+        window[windowEnd & WINDOW_MASK] = c;
+        windowEnd++;
+    }
+
+    /**
+     * Decodes the UTF-8 code point starting at the given byte position, leaving the position right after it in
+     * {@link #nextPos}.
+     */
+    private int decodeCodePoint(int pos) {
+        int b = decodeByte(bytes, pos, valueEnd);
+        pos = skipByte(bytes, pos);
+        if (b < 0x80) {
+            nextPos = pos;
+            return b;
+        }
+        // C0 and C1 only start overlong forms, F5 and above code points past U+10FFFF
+        int continuation;
+        int codePoint;
+        int minimum;
+        if (b >= 0xC2 && b <= 0xDF) {
+            continuation = 1;
+            codePoint = b & 0x1F;
+            minimum = 0x80;
+        } else if ((b & 0xF0) == 0xE0) {
+            continuation = 2;
+            codePoint = b & 0x0F;
+            minimum = 0x800;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            continuation = 3;
+            codePoint = b & 0x07;
+            minimum = 0x10000;
+        } else {
+            throw malformed(pos);
+        }
+        for (int i = 0; i < continuation; i++) {
+            if (pos >= valueEnd) {
+                throw malformed(pos);
+            }
+            int next = decodeByte(bytes, pos, valueEnd);
+            if ((next & 0xC0) != 0x80) {
+                throw malformed(pos);
+            }
+            codePoint = codePoint << 6 | (next & 0x3F);
+            pos = skipByte(bytes, pos);
+        }
+        // Overlong forms would let an encoded quote or operator through, like %C0%A2 for '"'
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            throw malformed(pos);
+        }
+        nextPos = pos;
+        return codePoint;
+    }
+
+    private static UQLLexicalException malformed(int pos) {
+        return new UQLLexicalException("Malformed UTF-8 sequence at byte " + pos);
+    }
+
+    /**
+     * Decodes the byte at the given position, resolving percent escapes and {@code +} as space.
+     */
+    private static int decodeByte(ByteBuffer bytes, int pos, int end) {
+        int b = bytes.get(pos) & 0xFF;
+        if (b == 0x2B) { // +
+            return 0x20;
+        }
+        if (b != 0x25) { // %
+            return b;
+        }
+        int high = pos + 1 < end ? Character.digit(bytes.get(pos + 1), 16) : -1;
+        int low = pos + 2 < end ? Character.digit(bytes.get(pos + 2), 16) : -1;
+        if (high < 0 || low < 0) {
+            throw new UQLLexicalException("Malformed percent escape at byte " + pos);
+        }
+        return high << 4 | low;
+    }
+
+    private static int skipByte(ByteBuffer bytes, int pos) {
+        return bytes.get(pos) == 0x25 ? pos + 3 : pos + 1;
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean keyEquals(ByteBuffer bytes, int start, int end, String key) {
+        int i = 0;
+        for (int pos = start; pos < end; pos = skipByte(bytes, pos)) {
+            int b = decodeByte(bytes, pos, end);
+            if (b >= 0x80) {
+                // Non ASCII keys are rare, compare them decoded
+                return decode(bytes, start, end).equals(key);
+            }
+            if (i >= key.length() || key.charAt(i) != b) {
+                return false;
+            }
+            i++;
+        }
+        return i == key.length();
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] decoded = new byte[end - start];
+        int length = 0;
+        for (int pos = start; pos < end; pos = skipByte(bytes, pos)) {
+            decoded[length++] = (byte) decodeByte(bytes, pos, end);
+        }
+        return new String(decoded, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BytecodeCompilerTest {
+
+    static final List<Map<String, Object>> ROWS = rows();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "a eq: 1",
+            "a not: 1",
+            "a gt: 2",
+            "a gte: 2",
+            "a lt: 2",
+            "a lte: 2",
+            "b eq: \"x\" && a lt: 3",
+            "b not: \"x\" || a gte: 4",
+            "(a eq: 1 || b eq: \"y\") && (c lt: 3 || c gt: 5)",
+            "(a eq: 1 && b eq: \"y\") || (c lte: 3 && c not: 1) || a eq: 4",
+            "a IN: [1, 3] && b IN: [\"x\", \"z\"]",
+            "a IN: [0, 1, 2, 3, 4, 5] || b not: \"x\"",
+            "c lt: 99999999999999999999 && c gt: 2",
+            "d eq: 1 || d not: 1 || d lt: 1 || d lte: 1",
+    })
+    void should_match_closure_compiler(String uql) {
+        Expr expr = new Parser(new Tokenizer(uql)).parseExpr();
+        FieldAccessor<Map<String, Object>> accessor = FieldAccessor.ofMap();
+        CompiledQuery<Map<String, Object>> expected = new QueryCompiler<>(accessor).compile(expr);
+
+        CompiledQuery<Map<String, Object>> query = new BytecodeCompiler<>(accessor).compile(expr);
+
+        for (Map<String, Object> row : ROWS) {
+            assertEquals(expected.test(row), query.test(row), uql + " " + row);
+        }
+    }
+
+    @Test
+    void should_define_hidden_class() {
+        CompiledQuery<Map<String, Object>> query = new BytecodeCompiler<>(FieldAccessor.<Object>ofMap())
+                .compile(new Parser(new Tokenizer("a eq: 1")).parseExpr());
+
+        assertTrue(query.predicate.getClass().getName().startsWith("com.uql.GeneratedQuery"));
+        assertTrue(query.test(Map.of("a", 1L)));
+    }
+
+    @Test
+    void should_fall_back_when_expression_is_too_large() {
+        StringBuilder uql = new StringBuilder("a eq: 0");
+        for (int i = 1; i < 1_000; i++) {
+            uql.append(" || a eq: ").append(i);
+        }
+        CompiledQuery<Map<String, Object>> query = new BytecodeCompiler<>(FieldAccessor.<Object>ofMap())
+                .compile(new Parser(new Tokenizer(uql)).parseExpr());
+
+        assertFalse(query.predicate.getClass().getName().startsWith("com.uql.GeneratedQuery"));
+        assertTrue(query.test(Map.of("a", 999L)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {70_000, 40_000})
+    void should_fall_back_when_literal_is_too_long_for_constant_pool(int length) {
+        // 40 000 chars of 'é' take 80 000 bytes of UTF-8
+        String name = (length == 40_000 ? "é" : "a").repeat(length);
+        CompiledQuery<Map<String, Object>> query = new BytecodeCompiler<>(FieldAccessor.<Object>ofMap())
+                .compile(new Parser(new Tokenizer("name eq: \"" + name + "\"")).parseExpr());
+
+        assertFalse(query.predicate.getClass().getName().startsWith("com.uql.GeneratedQuery"));
+        assertTrue(query.test(Map.of("name", name)));
+        assertFalse(query.test(Map.of("name", "a")));
+    }
+
+    static List<Map<String, Object>> rows() {
+        Random random = new Random(42);
+        String[] strings = {"x", "y", "z"};
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> row = new HashMap<>();
+            if (random.nextInt(10) > 0) {
+                row.put("a", (long) random.nextInt(6));
+            }
+            if (random.nextInt(10) > 0) {
+                row.put("b", strings[random.nextInt(3)]);
+            }
+            if (random.nextInt(10) > 0) {
+                row.put("c", random.nextBoolean() ? random.nextInt(8) : new BigDecimal(random.nextInt(8)));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,116 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ColumnarCompilerTest {
+
+    static final int ROWS = 10_001; // Three batches, the last one partial
+
+    static final List<Map<String, Object>> ROW_LIST = new ArrayList<>();
+    static final ColumnarTable TABLE = new ColumnarTable(ROWS);
+
+    static {
+        Random random = new Random(7);
+        long[] a = new long[ROWS];
+        double[] b = new double[ROWS];
+        Object[] c = new Object[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            a[i] = random.nextInt(100);
+            b[i] = random.nextInt(20) == 0 ? Double.NaN : random.nextInt(100) / 2.0;
+            if (b[i] == 0 && i % 2 == 0) {
+                b[i] = -0.0;
+            }
+            c[i] = random.nextInt(10) == 0 ? null : "v" + random.nextInt(30);
+            Map<String, Object> row = new HashMap<>();
+            row.put("a", a[i]);
+            row.put("b", b[i]);
+            row.put("c", c[i]);
+            ROW_LIST.add(row);
+        }
+        TABLE.withLongs("a", a).withDoubles("b", b).withObjects("c", c);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "a eq: 3",
+            "a not: 3",
+            "a gt: 10",
+            "a gte: 10",
+            "a lt: 10",
+            "a lte: 10",
+            "a eq: \"3\"",
+            "a lt: 99999999999999999999",
+            "b gt: 20",
+            "b gt: 20.5",
+            "b lte: 12.5",
+            "b eq: 7.5",
+            "b not: 2.5",
+            "a gt: -1",
+            "a lt: 10.5",
+            "b lte: 20",
+            "b not: 5",
+            "b eq: 0",
+            "b eq: 0.0",
+            "b lte: 0.0",
+            "b gt: -0.0",
+            "c eq: \"v1\"",
+            "c not: \"v1\"",
+            "c gt: \"v2\"",
+            "missing eq: 1",
+            "missing not: 1",
+            "a IN: [1, 2, 3, 99]",
+            "a IN: [1, \"2\", 3]",
+            "c IN: [\"v1\", \"v2\", \"v29\"]",
+            "b IN: [1, 2, 3]",
+            "a gt: 50 && b lt: 10",
+            "a gt: 0 && c eq: \"nope\" && b lt: 10",
+            "a gt: 90 || c eq: \"v3\" || b gt: 45",
+            "(a gt: 0 || c eq: \"v1\") && (b lt: 10 || c IN: [\"v2\", \"v3\"]) || a eq: 99",
+    })
+    void should_select_same_rows_as_row_at_a_time_evaluation(String uql) {
+        Expr expr = new Parser(new Tokenizer(uql)).parseExpr();
+        CompiledQuery<Map<String, Object>> rowQuery = new QueryCompiler<>(FieldAccessor.<Object>ofMap()).compile(expr);
+        long[] expected = new long[(ROWS + 63) / 64];
+        int expectedCount = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (rowQuery.test(ROW_LIST.get(i))) {
+                expected[i / 64] |= 1L << (i % 64);
+                expectedCount++;
+            }
+        }
+
+        ColumnarQuery query = new ColumnarCompiler(TABLE).compile(expr);
+
+        assertArrayEquals(expected, query.select(), uql);
+        assertEquals(expectedCount, query.count(), uql);
+    }
+
+    @Test
+    void should_compile_node_tree() {
+        Parser parser = new Parser(new Tokenizer("a eq: 3 && (c eq: \"v1\" || c eq: \"v2\")"));
+
+        ColumnarQuery query = new ColumnarCompiler(TABLE).compile(parser.parse());
+
+        assertEquals("a eq: 3 && (c eq: \"v1\" || c eq: \"v2\")", query.toString());
+    }
+
+    @Test
+    void should_reject_columns_of_wrong_length() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new ColumnarTable(3).withLongs("a", new long[2]));
+
+        assertEquals("Column 'a' has 2 rows, expect 3", e.getMessage());
+    }
+}
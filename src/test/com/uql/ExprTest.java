@@ -0,0 +1,96 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExprTest {
+
+    @Test
+    void should_parse_comparison() {
+        Expr result = parse("city eq: \"São João\"");
+
+        assertEquals(new Expr.Comparison("city", ComparisonOperator.EQ, "\"São João\""), result);
+    }
+
+    @Test
+    void should_parse_in_list_without_separators() {
+        Expr result = parse("city IN: [\"São João\", 123]");
+
+        assertEquals(new Expr.In("city", List.of("\"São João\"", "123")), result);
+    }
+
+    @Test
+    void should_give_and_precedence_over_or() {
+        Expr result = parse("a eq: 1 || b eq: 2 && c eq: 3 || d eq: 4");
+
+        assertEquals(new Expr.Logical(LogicalOperator.OR, List.of(
+                new Expr.Comparison("a", ComparisonOperator.EQ, "1"),
+                new Expr.Logical(LogicalOperator.AND, List.of(
+                        new Expr.Comparison("b", ComparisonOperator.EQ, "2"),
+                        new Expr.Comparison("c", ComparisonOperator.EQ, "3"))),
+                new Expr.Comparison("d", ComparisonOperator.EQ, "4"))), result);
+    }
+
+    @Test
+    void should_group_by_parenthesis_and_flatten_chains() {
+        Expr result = parse("((a eq: 1 || b gte: 2) && (c lt: 3)) && d not: 4");
+
+        assertEquals("(a eq: 1 || b gte: 2) && c lt: 3 && d not: 4", result.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "(city eq: \"São João\")",
+            "((city eq: \"São João\") && (number eq: 123))",
+            "(city eq: \"São João\") && (number eq: 123)",
+            "city IN: [\"São João\", 123] && number eq: 123",
+            "(city IN: [\"São João\", \"São Paulo\"] && number eq: 123) || (zipCode eq: \"13860123\")",
+    })
+    void should_build_same_expression_from_node_tree(String uql) {
+        Tokenizer tokenizer = new Tokenizer(uql);
+        tokenizer.tokenize();
+        Node tree = new Parser(tokenizer.tokens).parse();
+
+        assertEquals(parse(uql), Expr.of(tree));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq:",
+            "city IN: [1, ]",
+            "city IN: [1 2]",
+            "(city eq: 1",
+            "city eq: 1)",
+            "city IN: 1",
+            "city eq: 1 && ",
+    })
+    void should_throw_exception_on_invalid_expression(String uql) {
+        Parser parser = new Parser(new Tokenizer(uql));
+
+        assertThrows(UQLParseException.class, parser::parseExpr);
+    }
+
+    @Test
+    void should_keep_large_in_list_in_a_single_node() {
+        StringBuilder uql = new StringBuilder("id IN: [0");
+        for (int i = 1; i < 1_000; i++) {
+            uql.append(", ").append(i);
+        }
+        uql.append("]");
+
+        Expr.In result = (Expr.In) parse(uql.toString());
+
+        assertEquals(1_000, result.literals().size());
+        assertEquals("999", result.literals().getLast());
+    }
+
+    static Expr parse(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+}
@@ -0,0 +1,148 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileScannerTest {
+
+    @TempDir
+    Path directory;
+
+    static final List<Map<String, Object>> ROWS = new ArrayList<>();
+
+    static {
+        Random random = new Random(17);
+        for (int i = 0; i < 5_000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) i);
+            row.put("city", random.nextInt(10) == 0 ? "São João, SP" : "city" + random.nextInt(10));
+            if (random.nextInt(5) > 0) {
+                row.put("age", (long) random.nextInt(100) - 10);
+            }
+            ROWS.add(row);
+        }
+    }
+
+    static String json(Map<String, Object> row) {
+        StringBuilder builder = new StringBuilder("{\"id\": ").append(row.get("id"))
+                .append(", \"nested\": {\"age\": [1, \"}\"]}, \"city\": \"")
+                .append(((String) row.get("city")).replace("\"", "\\\"")).append('"');
+        if (row.containsKey("age")) {
+            builder.append(",\"age\":").append(row.get("age"));
+        }
+        return builder.append(", \"flag\": true, \"empty\": null}").toString();
+    }
+
+    static String csv(Map<String, Object> row) {
+        String city = (String) row.get("city");
+        String quoted = city.contains(",") ? "\"" + city.replace("\"", "\"\"") + "\"" : city;
+        return row.get("id") + ",x," + quoted + "," + (row.containsKey("age") ? row.get("age") : "");
+    }
+
+    Path write(String name, String header, Function<Map<String, Object>, String> format)
+            throws IOException {
+        StringBuilder builder = new StringBuilder(header);
+        for (Map<String, Object> row : ROWS) {
+            builder.append(format.apply(row)).append(row.get("id").hashCode() % 2 == 0 ? "\n" : "\r\n");
+        }
+        Path file = directory.resolve(name);
+        Files.writeString(file, builder, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"city3\"",
+            "city eq: \"São João, SP\"",
+            "age gt: 50 && city IN: [\"city1\", \"city2\"]",
+            "age lt: 0 || id lte: 10",
+            "age not: 5",
+            "unknown eq: 1 || id eq: 4999",
+    })
+    void should_match_same_records_as_in_memory_filter(String uql) throws IOException {
+        Expr expr = new Parser(new Tokenizer(uql)).parseExpr();
+        CompiledQuery<Map<String, Object>> query = new QueryCompiler<>(FieldAccessor.<Object>ofMap()).compile(expr);
+        List<Long> expected = ROWS.stream().filter(query).map(row -> (Long) row.get("id")).toList();
+
+        FileScanner ndjson = FileScanner.ndjson(write("rows.ndjson", "", FileScannerTest::json));
+        FileScanner csv = FileScanner.csv(write("rows.csv", "id,other,city,age\n", FileScannerTest::csv));
+        ndjson.chunkSize = 10_000; // Many chunks
+        csv.chunkSize = 10_000;
+
+        assertEquals(expected, ids(ndjson, expr, "{\"id\": "));
+        assertEquals(expected, ids(csv, expr, ""));
+    }
+
+    @Test
+    void should_read_json_escapes_and_types() throws IOException {
+        Path file = directory.resolve("types.ndjson");
+        Files.writeString(file, """
+                {"name": "caf\\u00e9\\/bar", "big": 99999999999999999999, "ratio": 1.5, "ok": true}
+                {"name": "other", "big": 1, "ratio": -2e1, "ok": false}
+                """);
+
+        assertEquals(1, FileScanner.ndjson(file).scan(
+                new Parser(new Tokenizer("name eq: \"café/bar\"")).parseExpr(), record -> {
+                }));
+        assertEquals(1, FileScanner.ndjson(file).scan(
+                new Parser(new Tokenizer("big gt: 99999999999999999998 && ok eq: \"true\"")).parseExpr(),
+                record -> {
+                }));
+        assertEquals(1, FileScanner.ndjson(file).scan(
+                new Parser(new Tokenizer("ratio lt: 0")).parseExpr(), record -> {
+                }));
+    }
+
+    @Test
+    void should_read_csv_header_longer_than_a_mapping() throws IOException {
+        Path file = directory.resolve("wide.csv");
+        Files.writeString(file, "id," + "x".repeat(2 << 20) + ",city\n1,a,Rome\n2,b,Oslo\n");
+
+        assertEquals(List.of(2L), ids(FileScanner.csv(file),
+                new Parser(new Tokenizer("city eq: \"Oslo\"")).parseExpr(), ""));
+    }
+
+    @Test
+    void should_reject_malformed_unicode_escape() throws IOException {
+        Path file = directory.resolve("escape.ndjson");
+        Files.writeString(file, "{\"name\": \"caf\\u00zz\"}\n");
+        Expr expr = new Parser(new Tokenizer("name eq: \"x\"")).parseExpr();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> FileScanner.ndjson(file).scan(expr, record -> {
+                }));
+        assertTrue(e.getMessage().startsWith("Malformed record, invalid unicode escape"), e.getMessage());
+    }
+
+    static List<Long> ids(FileScanner scanner, Expr expr, String prefix) {
+        List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+        long count = scanner.scan(expr, record -> {
+            String line = StandardCharsets.UTF_8.decode(record).toString();
+            String id = line.substring(prefix.length()).split("[,]", 2)[0];
+            ids.add(Long.parseLong(id));
+        });
+        assertEquals(ids.size(), count);
+        List<Long> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+}
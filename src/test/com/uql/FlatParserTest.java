@@ -0,0 +1,86 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlatParserTest {
+
+    static final String[] QUERIES = {
+            "city eq: \"São João\"",
+            "city IN: [\"São João\", 123] && number eq: 123",
+            "((city eq: \"São João\") && (number gte: 123))",
+            "(a eq: 1 || b lt: 2) && (c not: 3 || d lte: 4) || e gt: 5",
+            "((a eq: 1 && b eq: 2) && c eq: 3) || (d eq: 4 || e eq: 5)",
+    };
+
+    @Test
+    void should_build_same_tree_as_parser() {
+        FlatParser parser = new FlatParser(1);
+        for (String query : QUERIES) {
+            Expr expected = new Parser(new Tokenizer(query)).parseExpr();
+
+            assertEquals(expected, parser.parse(query).toExpr(), query);
+        }
+    }
+
+    @Test
+    void should_expose_nodes_as_offsets() {
+        String query = "city IN: [\"A\", 2] || age gt: 18";
+        FlatTree tree = new FlatParser().parse(query);
+
+        int root = tree.root();
+        assertEquals(FlatTree.OR, tree.kind(root));
+        int in = tree.firstChild(root);
+        assertEquals(FlatTree.IN, tree.kind(in));
+        assertEquals(ComparisonOperator.IN, tree.comparisonOperator(in));
+        assertEquals("city", slice(query, tree.keyStart(in), tree.keyLength(in)));
+        int literal = tree.firstChild(in);
+        assertEquals("\"A\"", slice(query, tree.literalStart(literal), tree.literalLength(literal)));
+        literal = tree.nextSibling(literal);
+        assertEquals("2", slice(query, tree.literalStart(literal), tree.literalLength(literal)));
+        assertEquals(FlatTree.NONE, tree.nextSibling(literal));
+        int comparison = tree.nextSibling(in);
+        assertEquals(FlatTree.COMPARISON, tree.kind(comparison));
+        assertEquals(ComparisonOperator.GT, tree.comparisonOperator(comparison));
+        assertEquals(FlatTree.NONE, tree.nextSibling(comparison));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "city eq:", "city IN: [1, ]", "(city eq: 1", "city eq: 1)", "city eq: 1 &&"})
+    void should_throw_exception_on_invalid_expression(String query) {
+        FlatParser parser = new FlatParser();
+
+        assertThrows(UQLParseException.class, () -> parser.parse(query));
+    }
+
+    @Test
+    void should_not_allocate_once_warmed_up() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        FlatParser parser = new FlatParser();
+        int nodes = 0;
+        for (int i = 0; i < 20_000; i++) {
+            nodes += parser.parse(QUERIES[i % QUERIES.length]).size();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) {
+            nodes += parser.parse(QUERIES[i % QUERIES.length]).size();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(nodes > 0);
+        assertTrue(allocated < 20_000, "allocated " + allocated + " bytes");
+    }
+
+    static String slice(String query, int start, int length) {
+        return query.substring(start, start + length);
+    }
+}
@@ -0,0 +1,79 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InSetTest {
+
+    @Test
+    void should_match_like_comparing_with_each_literal() {
+        Random random = new Random(42);
+        for (int size : new int[]{1, 3, 64, 65, 1_000}) {
+            List<String> literals = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                switch (random.nextInt(4)) {
+                    case 0 -> literals.add("\"" + random.nextInt(200) + "\"");
+                    case 1 -> literals.add("\"v" + random.nextInt(200) + "\"");
+                    default -> literals.add(String.valueOf(random.nextInt(200)));
+                }
+            }
+            literals.add("99999999999999999999");
+            InSet set = InSet.of(literals.stream().map(Literal::of).toList());
+            List<ToIntFunction<Object>> comparators = literals.stream()
+                    .map(raw -> Comparisons.comparator(Literals.parse(raw)))
+                    .toList();
+
+            for (int i = -10; i < 210; i++) {
+                for (Object value : new Object[]{(long) i, i, (double) i, i + 0.5, String.valueOf(i), "v" + i,
+                        new BigDecimal("99999999999999999999")}) {
+                    boolean expected = comparators.stream().anyMatch(c -> c.applyAsInt(value) == 0);
+                    assertEquals(expected, set.test(value), literals.size() + " literals, value " + value);
+                }
+            }
+            assertFalse(set.test(null));
+        }
+    }
+
+    @Test
+    void should_look_up_longs_in_sorted_and_hashed_sets() {
+        long[] values = new long[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 7L - 3_000;
+        }
+        values[0] = Long.MIN_VALUE;
+        values[1] = Long.MAX_VALUE;
+
+        LongSet hashed = LongSet.of(values);
+        LongSet sorted = LongSet.of(new long[]{Long.MIN_VALUE, 5, 5, -1});
+
+        for (long value : values) {
+            assertTrue(hashed.contains(value));
+        }
+        assertFalse(hashed.contains(-2_999));
+        assertFalse(hashed.contains(0 - 1));
+        assertEquals(3, sorted.size());
+        assertTrue(sorted.contains(Long.MIN_VALUE));
+        assertTrue(sorted.contains(-1));
+        assertFalse(sorted.contains(0));
+    }
+
+    @Test
+    void should_look_up_strings() {
+        StringSet set = StringSet.of(List.of("Aa", "BB", "Aa", "")); // "Aa" and "BB" share their hash
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains("Aa"));
+        assertTrue(set.contains("BB"));
+        assertTrue(set.contains(""));
+        assertFalse(set.contains("Ab"));
+    }
+}
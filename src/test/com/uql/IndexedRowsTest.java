@@ -0,0 +1,91 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IndexedRowsTest {
+
+    static final List<Map<String, Object>> ROWS = new ArrayList<>();
+
+    static {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            if (random.nextInt(20) > 0) {
+                row.put("city", "city" + random.nextInt(8));
+            }
+            row.put("status", random.nextInt(4));
+            row.put("mixed", random.nextBoolean() ? (Object) random.nextInt(3) : String.valueOf(random.nextInt(3)));
+            row.put("age", (long) random.nextInt(100));
+            ROWS.add(row);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"city1\"",
+            "city not: \"city1\"",
+            "city eq: \"nowhere\"",
+            "city IN: [\"city1\", \"city2\", \"nowhere\"]",
+            "status eq: 2",
+            "status eq: \"2\"",
+            "status not: 2",
+            "status IN: [1, \"3\"]",
+            "mixed eq: 1",
+            "mixed not: \"1\"",
+            "mixed IN: [0, \"2\"]",
+            "city eq: \"city1\" && status eq: 2",
+            "city eq: \"city1\" || status eq: 2 && city not: \"city3\"",
+            "city eq: \"city1\" && age gt: 50",
+            "city eq: \"city1\" && (age gt: 90 || status eq: 0)",
+            "city eq: \"city1\" || age gt: 98 || age lt: 1",
+            "age gt: 50 && age lt: 52",
+            "age gte: 50 && age lte: 52 && age gt: 50",
+            "age eq: 7",
+            "age gt: 90 || age lt: 3",
+            "age gt: 50 && age lt: 40",
+            "age gt: \"50\"",
+            "age lt: 99999999999999999999",
+            "age gt: 18 && age lt: 65 && city eq: \"city1\" && status not: 0",
+            "city gte: \"city6\"",
+            "city lt: \"city1\" && city eq: \"city0\"",
+            "city gt: 1",
+            "mixed gt: 1",
+    })
+    void should_select_same_rows_as_row_at_a_time_evaluation(String uql) {
+        Expr expr = new Parser(new Tokenizer(uql)).parseExpr();
+        FieldAccessor<Map<String, Object>> accessor = FieldAccessor.ofMap();
+        CompiledQuery<Map<String, Object>> query = new QueryCompiler<>(accessor).compile(expr);
+        List<Map<String, Object>> expected = ROWS.stream().filter(query).toList();
+
+        IndexedRows<Map<String, Object>> indexed = new IndexedRows<>(ROWS, accessor)
+                .withBitmapIndex("city")
+                .withBitmapIndex("status")
+                .withBitmapIndex("mixed")
+                .withRangeIndex("age")
+                .withRangeIndex("city")
+                .withRangeIndex("mixed");
+        RowBitmap selected = indexed.select(expr);
+
+        assertEquals(expected.size(), selected.cardinality(), uql);
+        assertEquals(expected, indexed.rows(selected), uql);
+    }
+
+    @Test
+    void should_select_from_node_tree() {
+        IndexedRows<Map<String, Object>> indexed = new IndexedRows<>(ROWS.subList(0, 10), FieldAccessor.ofMap())
+                .withBitmapIndex("status");
+        Parser parser = new Parser(new Tokenizer("status IN: [0, 1, 2, 3]"));
+
+        assertEquals(10, indexed.select(parser.parse()).cardinality());
+    }
+}
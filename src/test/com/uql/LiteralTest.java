@@ -0,0 +1,92 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LiteralTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "42                      ; LONG",
+            "-42                     ; LONG",
+            "9223372036854775807     ; LONG",
+            "9223372036854775808     ; DECIMAL",
+            "12.5                    ; DOUBLE",
+            "-0.001                  ; DOUBLE",
+            "123456789012.345        ; DOUBLE",
+            "1234567890123.4567      ; DECIMAL",
+            "\"12\"                  ; STRING",
+    })
+    void should_tag_literal_with_its_type(String text, Literal.Type type) {
+        assertEquals(type, Literal.of(text).type());
+    }
+
+    @Test
+    void should_decode_numbers_once() {
+        Literal integer = Literal.of("-7");
+        Literal decimal = Literal.of("2.25");
+
+        assertEquals(-7L, integer.longValue());
+        assertEquals(-7L, integer.value());
+        assertEquals(2.25, decimal.doubleValue());
+        assertEquals(new BigDecimal("2.25"), decimal.value());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "\"São João\"              ; São João",
+            "\"say \\\"hi\\\"\"         ; say \"hi\"",
+            "\"a\\\\b\"                ; a\\b",
+            "\"tab\\there\"            ; tab\there",
+            "\"S\\u00e3o\"             ; São",
+            "\"\"                      ; ''",
+    })
+    void should_unquote_strings_and_resolve_escapes(String text, String expected) {
+        assertEquals(expected.replace("\\t", "\t"), Literal.of(text).value());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"\\x\"", "\"\\u12\"", "\"\\u12G4\""})
+    void should_reject_invalid_escapes(String text) {
+        assertThrows(UQLLexicalException.class, () -> Literal.of(text));
+    }
+
+    @Test
+    void should_intern_strings_on_demand() {
+        String text = "\"" + new StringBuilder("ytic").reverse() + "\"";
+
+        assertSame("city", Literal.of(text, true).value());
+        assertNotSame("city", Literal.of(text).value());
+    }
+
+    @Test
+    void should_carry_typed_literals_in_parsed_expression() {
+        Expr expr = new Parser(new Tokenizer("price gt: -2.5 && id IN: [1, \"a\\\"b\"]")).parseExpr();
+        Expr.Logical and = (Expr.Logical) expr;
+        Expr.Comparison price = (Expr.Comparison) and.operands().get(0);
+        Expr.In id = (Expr.In) and.operands().get(1);
+
+        assertEquals(Literal.Type.DOUBLE, price.value().type());
+        assertEquals(-2.5, price.value().doubleValue());
+        assertEquals(1L, id.values().get(0).value());
+        assertEquals("a\"b", id.values().get(1).value());
+        assertEquals("price gt: -2.5 && id IN: [1, \"a\\\"b\"]", expr.toString());
+    }
+
+    @Test
+    void should_intern_strings_when_parser_asks() {
+        String query = "city eq: \"" + new StringBuilder("nilreB").reverse() + "\"";
+        Expr.Comparison comparison = (Expr.Comparison) new Parser(new Tokenizer(query)).withInternedStrings().parseExpr();
+
+        assertSame("Berlin", comparison.value().value());
+    }
+}
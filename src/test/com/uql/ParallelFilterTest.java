@@ -0,0 +1,78 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelFilterTest {
+
+    record Person(int id, String city, long age) {
+    }
+
+    static final List<Person> PEOPLE = new ArrayList<>();
+
+    static {
+        Random random = new Random(9);
+        for (int i = 0; i < 200_000; i++) {
+            PEOPLE.add(new Person(i, "city" + random.nextInt(10), random.nextInt(100)));
+        }
+    }
+
+    static final ParallelFilter FILTER = new ParallelFilter(new ForkJoinPool(4), 10_000);
+
+    static CompiledQuery<Person> compile(String uql) {
+        return new QueryCompiler<>(FieldAccessor.ofRecord(Person.class))
+                .compile(new Parser(new Tokenizer(uql)).parseExpr());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"city1\"",
+            "age gt: 30 && (city IN: [\"city2\", \"city3\"] || age lt: 40)",
+            "age gt: 1000",
+    })
+    void should_match_sequential_filter(String uql) {
+        CompiledQuery<Person> query = compile(uql);
+        List<Person> expected = PEOPLE.stream().filter(query).toList();
+
+        List<Person> ordered = FILTER.filter(PEOPLE, query, true);
+        List<Person> unordered = new ArrayList<>(FILTER.filter(PEOPLE, query, false));
+        unordered.sort(Comparator.comparingInt(Person::id));
+
+        assertEquals(expected, ordered);
+        assertEquals(expected, unordered);
+        assertEquals(expected.size(), FILTER.count(PEOPLE, query));
+    }
+
+    @Test
+    void should_split_sources_without_random_access() {
+        CompiledQuery<Person> query = compile("age lte: 10");
+        List<Person> expected = PEOPLE.stream().filter(query).toList();
+
+        assertEquals(expected, FILTER.filter(new LinkedList<>(PEOPLE), query, true));
+    }
+
+    @Test
+    void should_filter_small_collections_on_calling_thread() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CompiledQuery<Person> query = compile("age gte: 0");
+
+        List<Person> matches = FILTER.filter(PEOPLE.subList(0, 9_999),
+                row -> threads.add(Thread.currentThread()) | query.test(row), true);
+
+        assertEquals(9_999, matches.size());
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+}
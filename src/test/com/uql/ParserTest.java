@@ -280,6 +280,41 @@ public class ParserTest {
                 result.treeString(0));
     }
 
+    @Test
+    void should_parse_pulling_tokens_on_demand() {
+        String uql = "(city IN: [\"São João\", 123]) || (number eq: 123)";
+        Tokenizer tokenizer = new Tokenizer(uql);
+        tokenizer.tokenize();
+        Node expected = new Parser(tokenizer.tokens).parse();
+
+        Node result = new Parser(new Tokenizer(uql)).parse();
+
+        assertEquals(expected.treeString(0), result.treeString(0));
+    }
+
+    @Test
+    void should_parse_long_in_list() {
+        StringBuilder uql = new StringBuilder("id IN: [1");
+        for (int i = 2; i <= 10_000; i++) {
+            uql.append(", ").append(i);
+        }
+        uql.append("]");
+
+        Node result = new Parser(new Tokenizer(uql.toString())).parse();
+
+        Node operandIn = result.children.getFirst().children.getFirst()
+                .children.getLast().children.getLast();
+        assertEquals(new Node("OPERAND_IN"), operandIn);
+        assertEquals(10_000 * 2 + 1, operandIn.children.size());
+    }
+
+    @Test
+    void should_throw_lexical_exception_while_parsing() {
+        Parser parser = new Parser(new Tokenizer("city eq: 1 && # eq: 2"));
+
+        assertThrows(UQLLexicalException.class, parser::parse);
+    }
+
     boolean isTreesEqual(Node root1, Node root2) {
         if (root1 == null && root2 == null) {
             return true;
@@ -0,0 +1,133 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlanCodecTest {
+
+    record Person(String city, long age, double score) {
+    }
+
+    record Employee(String city, long age) {
+    }
+
+    static Expr parse(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"São João\"",
+            "age gt: -3 && score lte: 2.75",
+            "city IN: [\"a\", \"b\\\"c\", \"a\"] || age not: 99999999999999999999",
+            "(city eq: \"x\" || city eq: \"y\") && (age gte: 1 || age lt: 0 && score gt: 1)",
+    })
+    void should_decode_what_was_encoded(String uql) {
+        Expr expr = parse(uql);
+        byte[] plan = PlanCodec.encode(expr);
+
+        Expr decoded = PlanCodec.decode(ByteBuffer.wrap(plan));
+        assertEquals(expr, decoded);
+        assertEquals(expr.toString(), decoded.toString());
+    }
+
+    @Test
+    void should_write_each_key_and_literal_once() {
+        StringBuilder uql = new StringBuilder("status eq: \"active\"");
+        for (int i = 0; i < 100; i++) {
+            uql.append(" || status eq: \"active\" && country IN: [\"Brazil\", \"Portugal\"]");
+        }
+        byte[] plan = PlanCodec.encode(parse(uql.toString()));
+
+        assertTrue(plan.length < uql.length() / 5, plan.length + " bytes");
+    }
+
+    @Test
+    void should_keep_literal_types() {
+        Expr.Logical decoded = (Expr.Logical) PlanCodec.decode(ByteBuffer.wrap(
+                PlanCodec.encode(parse("age gt: -3 && score lte: 2.75"))));
+
+        assertEquals(Literal.Type.LONG, ((Expr.Comparison) decoded.operands().get(0)).value().type());
+        assertEquals(2.75, ((Expr.Comparison) decoded.operands().get(1)).value().doubleValue());
+    }
+
+    @Test
+    void should_read_consecutive_plans_from_one_buffer() {
+        byte[] first = PlanCodec.encode(parse("age gt: 1"));
+        byte[] second = PlanCodec.encode(parse("city eq: \"x\""));
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length).put(first).put(second).flip();
+
+        assertEquals(parse("age gt: 1"), PlanCodec.decode(buffer));
+        assertEquals(parse("city eq: \"x\""), PlanCodec.decode(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void should_check_the_schema_the_plan_was_bound_to() {
+        Schema<Person> schema = Schema.of(Person.class);
+        byte[] plan = PlanCodec.encode(parse("city eq: \"x\" && age gt: 3"), schema);
+
+        assertEquals(parse("city eq: \"x\" && age gt: 3"), PlanCodec.decode(ByteBuffer.wrap(plan), Schema.of(Person.class)));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlanCodec.decode(ByteBuffer.wrap(plan), Schema.of(Employee.class)));
+        assertThrows(UQLParseException.class, () -> PlanCodec.encode(parse("name eq: \"x\""), schema));
+    }
+
+    @Test
+    void should_fingerprint_the_shape_of_the_rows() {
+        assertEquals(Schema.of(Person.class).fingerprint(), Schema.of(Person.class).fingerprint());
+        assertNotEquals(Schema.of(Person.class).fingerprint(), Schema.of(Employee.class).fingerprint());
+        assertEquals(Schema.ofArray().withColumn("a", Long.class).fingerprint(),
+                Schema.ofArray().withColumn("a", Long.class).fingerprint());
+        assertNotEquals(Schema.ofArray().withColumn("a", Long.class).fingerprint(),
+                Schema.ofArray().withColumn("a", String.class).fingerprint());
+    }
+
+    @Test
+    void should_reject_malformed_plans() {
+        byte[] plan = PlanCodec.encode(parse("city IN: [\"a\", \"b\"] && age gt: 3"));
+        byte[] otherVersion = plan.clone();
+        otherVersion[4] = 2;
+        byte[] badMagic = plan.clone();
+        badMagic[0] = 0;
+
+        assertThrows(IllegalArgumentException.class, () -> PlanCodec.decode(ByteBuffer.wrap(otherVersion)));
+        assertThrows(IllegalArgumentException.class, () -> PlanCodec.decode(ByteBuffer.wrap(badMagic)));
+        for (int length = 0; length < plan.length; length++) {
+            byte[] truncated = Arrays.copyOf(plan, length);
+            assertThrows(IllegalArgumentException.class, () -> PlanCodec.decode(ByteBuffer.wrap(truncated)));
+        }
+    }
+
+    @Test
+    void should_reject_crafted_plans_before_allocating() {
+        PlanCodec.Writer hugePool = header();
+        hugePool.writeVarint(Integer.MAX_VALUE);
+        PlanCodec.Writer deep = header();
+        deep.writeVarint(0);
+        for (int i = 0; i < 100_000; i++) {
+            deep.writeVarint(0); // AND
+            deep.writeVarint(2);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> PlanCodec.decode(ByteBuffer.wrap(hugePool.toByteArray())));
+        assertThrows(IllegalArgumentException.class, () -> PlanCodec.decode(ByteBuffer.wrap(deep.toByteArray())));
+    }
+
+    static PlanCodec.Writer header() {
+        PlanCodec.Writer plan = new PlanCodec.Writer();
+        plan.writeInt(PlanCodec.MAGIC);
+        plan.writeVarint(PlanCodec.VERSION);
+        plan.writeLong(0);
+        return plan;
+    }
+}
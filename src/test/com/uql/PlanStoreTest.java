@@ -0,0 +1,119 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PlanStoreTest {
+
+    record Person(String city, long age) {
+    }
+
+    record Customer(String city, long age, String email) {
+    }
+
+    static Expr parse(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+
+    @Test
+    void should_warm_cache_with_stored_plans(@TempDir Path directory) {
+        Path file = directory.resolve("plans.uqls");
+        List<String> queries = List.of("city eq: \"x\"", "age gt: 3 && city IN: [\"a\", \"b\"]", "age lt: 1");
+        try (PlanStore store = PlanStore.open(file)) {
+            for (String query : queries) {
+                store.put(query, parse(query));
+            }
+        }
+
+        QueryCache<Expr> cache = QueryCache.parsing(100);
+        try (PlanStore store = PlanStore.open(file)) {
+            assertEquals(3, store.warm(cache));
+        }
+        for (String query : queries) {
+            assertEquals(parse(query), cache.get(query));
+        }
+        assertEquals(3, cache.stats().hits());
+    }
+
+    @Test
+    void should_keep_latest_plan_of_a_query(@TempDir Path directory) {
+        Path file = directory.resolve("plans.uqls");
+        try (PlanStore store = PlanStore.open(file)) {
+            store.put("q", parse("age gt: 1"));
+            store.put("q", parse("age gt: 2"));
+            assertEquals(Map.of("q", parse("age gt: 2")), store.plans());
+        }
+    }
+
+    @Test
+    void should_skip_plans_bound_to_another_schema(@TempDir Path directory) {
+        Path file = directory.resolve("plans.uqls");
+        try (PlanStore store = PlanStore.open(file, Schema.of(Person.class))) {
+            store.put("old", parse("age gt: 1"));
+        }
+        try (PlanStore store = PlanStore.open(file, Schema.of(Customer.class))) {
+            store.put("new", parse("email eq: \"a\""));
+            assertEquals(Map.of("new", parse("email eq: \"a\"")), store.plans());
+        }
+    }
+
+    @Test
+    void should_drop_entry_cut_short(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("plans.uqls");
+        try (PlanStore store = PlanStore.open(file)) {
+            store.put("a", parse("age gt: 1"));
+            store.put("b", parse("age gt: 2"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (PlanStore store = PlanStore.open(file)) {
+            assertEquals(Map.of("a", parse("age gt: 1")), store.plans());
+            store.put("c", parse("age gt: 3"));
+        }
+        try (PlanStore store = PlanStore.open(file)) {
+            assertEquals(Map.of("a", parse("age gt: 1"), "c", parse("age gt: 3")), store.plans());
+        }
+    }
+
+    @Test
+    void should_skip_corrupt_entries(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("plans.uqls");
+        try (PlanStore store = PlanStore.open(file)) {
+            store.put("a", parse("age gt: 1"));
+            store.put("b", parse("age gt: 2"));
+            store.put("c", parse("age gt: 3"));
+            store.put("d", parse("age gt: 4"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 4);
+            long b = 4 + 4 + length.getInt(0);
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), b + 4); // Key longer than the entry
+            channel.read(length.clear(), b);
+            long c = b + 4 + length.getInt(0);
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), c + 4 + 2); // No plan header
+        }
+        try (PlanStore store = PlanStore.open(file)) {
+            assertEquals(Map.of("a", parse("age gt: 1"), "d", parse("age gt: 4")), store.plans());
+        }
+    }
+
+    @Test
+    void should_reject_file_that_is_not_a_store(@TempDir Path directory) throws IOException {
+        Path file = Files.writeString(directory.resolve("plans.uqls"), "hello");
+        assertThrows(IllegalArgumentException.class, () -> PlanStore.open(file));
+    }
+}
@@ -0,0 +1,111 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryCacheTest {
+
+    @Test
+    void should_parse_once_per_query() {
+        QueryCache<Expr> cache = QueryCache.parsing(10);
+
+        Expr first = cache.get("city eq: \"São João\"");
+        Expr second = cache.get("city eq: \"São João\"");
+
+        assertSame(first, second);
+        assertEquals(new CacheStats(1, 1, 0), cache.stats());
+        assertEquals(0.5, cache.stats().hitRate());
+    }
+
+    @Test
+    void should_not_cache_errors() {
+        QueryCache<Expr> cache = QueryCache.parsing(10);
+
+        assertThrows(UQLParseException.class, () -> cache.get("city eq:"));
+        assertThrows(UQLParseException.class, () -> cache.get("city eq:"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void should_reject_null_values() {
+        QueryCache<String> cache = new QueryCache<>(10, query -> null);
+
+        NullPointerException e = assertThrows(NullPointerException.class, () -> cache.get("a eq: 1"));
+        assertEquals("Loader returned null for 'a eq: 1'", e.getMessage());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void should_stay_within_maximum_size() {
+        QueryCache<String> cache = new QueryCache<>(100, query -> query);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("id eq: " + i);
+        }
+
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+        assertEquals(10_000 - cache.size(), cache.stats().evictions());
+    }
+
+    @Test
+    void should_keep_hot_queries_during_a_scan() {
+        AtomicInteger loads = new AtomicInteger();
+        QueryCache<String> cache = new QueryCache<>(100, query -> {
+            loads.incrementAndGet();
+            return query;
+        });
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot eq: " + i);
+            }
+        }
+
+        loads.set(0);
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("scan eq: " + i);
+            cache.get("hot eq: " + (i % 50));
+        }
+
+        assertEquals(10_000, loads.get(), "hot queries were reloaded");
+    }
+
+    @Test
+    void should_be_thread_safe() throws Exception {
+        QueryCache<Expr> cache = QueryCache.parsing(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        int id = (i * 31 + seed) % (i % 10 == 0 ? 1_000 : 32);
+                        Expr expr = cache.get("id eq: " + id);
+                        assertEquals("id eq: " + id, expr.toString());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.size() <= 64);
+        assertEquals(160_000, cache.stats().requests());
+        assertTrue(cache.stats().hitRate() > 0.5, cache.stats().toString());
+    }
+}
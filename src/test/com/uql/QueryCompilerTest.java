@@ -0,0 +1,118 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryCompilerTest {
+
+    record Address(String city, int number, String zipCode) {
+    }
+
+    static final List<Address> ADDRESSES = List.of(
+            new Address("São João", 123, "13860123"),
+            new Address("São Paulo", 10, "01001000"),
+            new Address("Campinas", 123, "13010000"));
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "city eq: \"São João\"                                ; 0",
+            "city not: \"São João\"                               ; 1,2",
+            "number eq: 123                                      ; 0,2",
+            "number gt: 10                                       ; 0,2",
+            "number gte: 10                                      ; 0,1,2",
+            "number lt: 123                                      ; 1",
+            "number lte: 10                                      ; 1",
+            "city gt: \"Campinas\"                                ; 0,1",
+            "zipCode eq: 13860123                                ; 0",
+            "number eq: \"10\"                                    ; 1",
+            "city IN: [\"São Paulo\", \"Campinas\"]                ; 1,2",
+            "number IN: [1, 2, 3, 10]                            ; 1",
+            "city eq: \"Campinas\" || number eq: 10 && zipCode eq: \"01001000\" ; 1,2",
+            "(city eq: \"Campinas\" || number eq: 10) && zipCode eq: \"01001000\" ; 1",
+            "number eq: 99999999999999999999                     ; ''",
+            "number gt: -1                                       ; 0,1,2",
+            "number lt: 10.5                                     ; 1",
+            "number gte: 122.99                                  ; 0,2",
+            "number eq: 123.0                                    ; 0,2",
+            "city eq: \"S\\u00e3o Jo\\u00e3o\"                      ; 0",
+            "city IN: [\"Campinas\", \"S\\u00e3o Paulo\"]              ; 1,2",
+    })
+    void should_filter_records(String uql, String expected) {
+        CompiledQuery<Address> query = new QueryCompiler<>(FieldAccessor.ofRecord(Address.class))
+                .compile(new Parser(new Tokenizer(uql)).parseExpr());
+
+        StringBuilder matched = new StringBuilder();
+        for (int i = 0; i < ADDRESSES.size(); i++) {
+            if (query.test(ADDRESSES.get(i))) {
+                matched.append(matched.isEmpty() ? "" : ",").append(i);
+            }
+        }
+
+        assertEquals(expected, matched.toString(), uql);
+    }
+
+    @Test
+    void should_compile_node_tree_over_maps() {
+        Tokenizer tokenizer = new Tokenizer("(city eq: \"São João\") && (number gte: 100)");
+        tokenizer.tokenize();
+        Node tree = new Parser(tokenizer.tokens).parse();
+        CompiledQuery<Map<String, Object>> query = new QueryCompiler<>(FieldAccessor.<Object>ofMap())
+                .compile(tree);
+
+        assertTrue(query.test(Map.of("city", "São João", "number", 123)));
+        assertTrue(query.test(Map.of("city", "São João", "number", 123.5)));
+        assertTrue(query.test(Map.of("city", "São João", "number", new BigDecimal("100.0"))));
+        assertFalse(query.test(Map.of("city", "São João", "number", 99L)));
+        assertFalse(query.test(Map.of("city", "Campinas", "number", 123)));
+    }
+
+    @Test
+    void should_match_negative_zero_as_zero() {
+        QueryCompiler<Map<String, Object>> compiler = new QueryCompiler<>(FieldAccessor.ofMap());
+        Function<String, CompiledQuery<Map<String, Object>>> compile =
+                uql -> compiler.compile(new Parser(new Tokenizer(uql)).parseExpr());
+
+        assertTrue(compile.apply("x eq: 0.0").test(Map.of("x", -0.0)));
+        assertTrue(compile.apply("x eq: 0").test(Map.of("x", -0.0)));
+        assertTrue(compile.apply("x eq: -0.0").test(Map.of("x", 0.0)));
+        assertFalse(compile.apply("x lt: 0.0").test(Map.of("x", -0.0)));
+        assertTrue(compile.apply("x IN: [0.0, 1.5]").test(Map.of("x", -0.0)));
+    }
+
+    @Test
+    void should_not_match_missing_keys() {
+        CompiledQuery<Map<String, Object>> query = new QueryCompiler<>(FieldAccessor.<Object>ofMap())
+                .compile(new Parser(new Tokenizer("city not: \"A\" || number lt: 10 || zip IN: [1]")).parseExpr());
+
+        assertFalse(query.test(new HashMap<>()));
+    }
+
+    @Test
+    void should_short_circuit() {
+        AtomicInteger reads = new AtomicInteger();
+        FieldAccessor<Map<String, Object>> accessor = (row, key) -> {
+            reads.incrementAndGet();
+            return row.get(key);
+        };
+        CompiledQuery<Map<String, Object>> query = new QueryCompiler<>(accessor)
+                .compile(new Parser(new Tokenizer("(a eq: 1 || b eq: 2) && c eq: 3")).parseExpr());
+
+        assertFalse(query.test(Map.of("a", 2L, "b", 3L)));
+        assertEquals(2, reads.get());
+        reads.set(0);
+        assertTrue(query.test(Map.of("a", 1L, "c", 3L)));
+        assertEquals(2, reads.get());
+    }
+}
@@ -0,0 +1,188 @@
+package com.uql;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryMetricsTest {
+
+    static final QueryMetrics METRICS = QueryMetrics.global();
+
+    record Person(String city, long age) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        METRICS.reset();
+        METRICS.setSlowQueryThreshold(Duration.ofMillis(100));
+        METRICS.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        METRICS.setEnabled(false);
+        METRICS.reset();
+    }
+
+    @Test
+    void should_RecordEveryPhase() {
+        Tokenizer tokenizer = new Tokenizer("city eq: \"Berlin\" && age gt: 30");
+        tokenizer.tokenize();
+        Expr expr = new Parser(tokenizer.tokens).parseExpr();
+        CompiledQuery<Person> query = new QueryCompiler<>(FieldAccessor.ofRecord(Person.class)).compile(expr);
+        new ParallelFilter().count(List.of(new Person("Berlin", 40)), query);
+
+        assertEquals(Map.of("TOKENIZE", 1L, "PARSE", 1L, "COMPILE", 1L, "EVALUATE", 1L), METRICS.getCounts());
+        assertTrue(METRICS.max(QueryMetrics.Phase.TOKENIZE).toNanos() > 0);
+        assertEquals(Map.of(), METRICS.getErrors());
+    }
+
+    @Test
+    void should_RecordParseOnce_When_CompilingNodeTree() {
+        Node tree = new Parser(new Tokenizer("city eq: \"Berlin\" && age gt: 30")).parse();
+        new QueryCompiler<>(FieldAccessor.ofRecord(Person.class)).compile(tree);
+
+        assertEquals(1, METRICS.count(QueryMetrics.Phase.PARSE));
+        assertEquals(1, METRICS.count(QueryMetrics.Phase.COMPILE));
+    }
+
+    @Test
+    void should_KeepCompileOutOfEvaluate_When_IndexedRowsScan() {
+        FieldAccessor<Person> slowToCompile = new FieldAccessor<>() {
+            @Override
+            public Object get(Person row, String key) {
+                return key.equals("city") ? row.city() : row.age();
+            }
+
+            @Override
+            public Function<Person, Object> getter(String key) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return row -> get(row, key);
+            }
+        };
+        IndexedRows<Person> rows = new IndexedRows<>(List.of(new Person("Berlin", 40)), slowToCompile);
+
+        rows.select(new Parser(new Tokenizer("age gt: 30")).parseExpr());
+
+        assertTrue(METRICS.max(QueryMetrics.Phase.COMPILE).toMillis() >= 200);
+        assertTrue(METRICS.max(QueryMetrics.Phase.EVALUATE).toMillis() < 100,
+                "evaluate " + METRICS.max(QueryMetrics.Phase.EVALUATE));
+    }
+
+    @Test
+    void should_RecordNothing_When_Disabled() {
+        METRICS.setEnabled(false);
+        new Parser(new Tokenizer("city eq: \"Berlin\"")).parseExpr();
+        assertThrows(UQLParseException.class, () -> new Parser(new Tokenizer("city eq:")).parseExpr());
+
+        assertEquals(0, METRICS.count(QueryMetrics.Phase.PARSE));
+        assertEquals(Map.of(), METRICS.getErrors());
+    }
+
+    @Test
+    void should_CountErrorsByExceptionType() {
+        assertThrows(UQLLexicalException.class, () -> new Tokenizer("city eq: $").tokenize());
+        assertThrows(UQLParseException.class, () -> new Parser(new Tokenizer("city eq:")).parseExpr());
+        assertThrows(UQLParseException.class, () -> new FlatParser().parse("city eq: 1 age"));
+
+        assertEquals(Map.of("UQLLexicalException", 1L, "UQLParseException", 2L), METRICS.getErrors());
+        assertEquals(0, METRICS.count(QueryMetrics.Phase.PARSE));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "50;  1000",
+            "90;  1800",
+            "99;  1999",
+            "100; 2000",
+    })
+    void should_ReportPercentilesWithinABucket(double percentile, long expected) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 2000; nanos++) {
+            histogram.record(nanos);
+        }
+        long actual = histogram.percentile(percentile);
+        assertTrue(actual >= expected && actual <= expected * 1.125, percentile + "th percentile was " + actual);
+        assertEquals(2000, histogram.max());
+        assertEquals(1000.5, histogram.mean());
+    }
+
+    @Test
+    void should_PutEveryValueInTheBucketCoveringIt() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 17, 1000, 1 << 20, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.highestValue(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1), "value " + value);
+        }
+    }
+
+    @Test
+    void should_CommitFlightRecorderEvent_When_PhaseIsSlow(@TempDir Path directory) throws Exception {
+        METRICS.setSlowQueryThreshold(Duration.ZERO);
+        Path file = directory.resolve("uql.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.uql.SlowQuery");
+            recording.start();
+            new Parser(new Tokenizer("city  eq:  \"Berlin\"")).parseExpr();
+            new Parser(new Tokenizer("city  eq:  \"Berlin\"")).parse();
+            Tokenizer tokenizer = new Tokenizer("city  eq:  \"Berlin\"");
+            tokenizer.tokenize();
+            new Parser(tokenizer.tokens).parseExpr();
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.uql.SlowQuery"))
+                .toList();
+
+        // The same query text whatever the entry point, tokens of a plain list joined by spaces
+        assertEquals(List.of("PARSE city  eq:  \"Berlin\"", "PARSE city  eq:  \"Berlin\"",
+                "TOKENIZE city  eq:  \"Berlin\"", "PARSE city eq: \"Berlin\""), events.stream()
+                .map(event -> event.getString("phase") + " " + event.getString("query")).toList());
+        assertTrue(events.get(0).getDuration("elapsed").toNanos() > 0);
+    }
+
+    @Test
+    void should_ExposeMetricsOverJmx() throws Exception {
+        QueryMetrics.registerMBean();
+        QueryMetrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(QueryMetrics.OBJECT_NAME);
+        new Parser(new Tokenizer("city eq: \"Berlin\"")).parseExpr();
+
+        TabularData counts = (TabularData) server.getAttribute(name, "Counts");
+        CompositeData parse = counts.get(new Object[]{"PARSE"});
+        assertEquals(1L, parse.get("value"));
+
+        server.setAttribute(name, new Attribute("SlowQueryThresholdMillis", 250L));
+        assertEquals(Duration.ofMillis(250), METRICS.slowQueryThreshold());
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, METRICS.count(QueryMetrics.Phase.PARSE));
+    }
+}
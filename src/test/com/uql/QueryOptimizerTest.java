@@ -0,0 +1,114 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryOptimizerTest {
+
+    static final List<Map<String, Object>> ROWS = new ArrayList<>();
+
+    static {
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) i);
+            row.put("status", random.nextInt(100) == 0 ? "failed" : "ok");
+            row.put("age", (long) random.nextInt(100));
+            if (random.nextBoolean()) {
+                row.put("nickname", "n" + random.nextInt(1000));
+            }
+            ROWS.add(row);
+        }
+    }
+
+    static final FieldAccessor<Map<String, Object>> ACCESSOR = FieldAccessor.ofMap();
+    static final QueryOptimizer OPTIMIZER = new QueryOptimizer(
+            Statistics.collect(ROWS, ACCESSOR, "id", "status", "age", "nickname"));
+
+    static Expr expr(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+
+    @Test
+    void should_run_selective_operands_first() {
+        QueryOptimizer.Plan plan = OPTIMIZER.optimize(expr("age gte: 10 && status not: \"ok\" && id eq: 42"));
+
+        assertEquals("id eq: 42 && status not: \"ok\" && age gte: 10", plan.expr().toString());
+    }
+
+    @Test
+    void should_run_likely_operands_first_in_or() {
+        QueryOptimizer.Plan plan = OPTIMIZER.optimize(expr("id eq: 42 || status eq: \"failed\" || age lt: 90"));
+
+        assertEquals("age lt: 90 || status eq: \"failed\" || id eq: 42", plan.expr().toString());
+    }
+
+    @Test
+    void should_flatten_nested_chains() {
+        Expr nested = new Expr.Logical(LogicalOperator.AND, List.of(
+                expr("age gt: 5"),
+                new Expr.Logical(LogicalOperator.AND, List.of(expr("id lt: 10"), expr("age lt: 50")))));
+
+        QueryOptimizer.Plan plan = OPTIMIZER.optimize(nested);
+
+        assertEquals(3, ((Expr.Logical) plan.expr()).operands().size());
+    }
+
+    @Test
+    void should_estimate_selectivity_from_statistics() {
+        assertEquals(0.01, OPTIMIZER.optimize(expr("status eq: \"failed\"")).selectivity(), 0.01);
+        assertEquals(0.25, OPTIMIZER.optimize(expr("age lt: 25")).selectivity(), 0.05);
+        assertEquals(0.5, OPTIMIZER.optimize(expr("nickname gte: \"\"")).selectivity(), 0.05);
+        assertEquals(0.0003, OPTIMIZER.optimize(expr("id IN: [1, 2, 3]")).selectivity(), 0.0001);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"EQ", "NOT", "LT", "LTE", "GT", "GTE"})
+    void should_estimate_no_rows_for_key_without_values(ComparisonOperator operator) {
+        Statistics.KeyStatistics missing = Statistics.collect(ROWS, ACCESSOR, "missing").of("missing");
+
+        assertEquals(0.0, missing.selectivity(operator, 5L));
+        assertEquals(0.0, missing.selectivity(operator, "x"));
+    }
+
+    @Test
+    void should_explain_plan() {
+        String explain = OPTIMIZER.optimize(expr("age gte: 10 && (status eq: \"failed\" || unknown eq: 1)")).explain();
+
+        assertEquals("""
+                AND (selectivity=0.0956, cost=2.01)
+                  OR (selectivity=0.1080, cost=1.90)
+                    unknown eq: 1 (selectivity=0.1000, cost=1.00)
+                    status eq: "failed" (selectivity=0.0089, cost=1.00)
+                  age gte: 10 (selectivity=0.8854, cost=1.00)
+                """, explain);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "age gte: 10 && status not: \"failed\" && id lt: 500",
+            "id eq: 42 || status eq: \"failed\" || age lt: 90 && nickname gt: \"n5\"",
+            "(nickname lt: \"n2\" || age gt: 95) && (id lt: 100 || status eq: \"failed\")",
+    })
+    void should_keep_matching_same_rows(String uql) {
+        Expr expr = expr(uql);
+        QueryCompiler<Map<String, Object>> compiler = new QueryCompiler<>(ACCESSOR);
+
+        List<Map<String, Object>> expected = ROWS.stream().filter(compiler.compile(expr)).toList();
+        List<Map<String, Object>> actual = ROWS.stream()
+                .filter(compiler.compile(OPTIMIZER.optimize(expr).expr())).toList();
+
+        assertEquals(expected, actual);
+        assertTrue(expected.size() > 0);
+    }
+}
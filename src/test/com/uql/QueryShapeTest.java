@@ -0,0 +1,84 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryShapeTest {
+
+    @Test
+    void should_pull_literals_out_of_the_expression() {
+        QueryShape.Parameterized result = QueryShape.of(parse("city eq: \"A\" && (id IN: [1, 2, 3] || age gt: 18)"));
+
+        assertEquals("city eq: ?0 && (id IN: [?1] || age gt: ?2)", result.shape().text());
+        assertEquals(List.of(literal("\"A\""), List.of(literal("1"), literal("2"), literal("3")), literal("18")),
+                result.parameters());
+        assertEquals(parse("city eq: \"A\" && (id IN: [1, 2, 3] || age gt: 18)"), result.expr());
+    }
+
+    @Test
+    void should_keep_literals_decoded_by_the_parser() {
+        Expr.Comparison comparison = (Expr.Comparison) new Parser(new Tokenizer("city eq: \"A\""))
+                .withInternedStrings().parseExpr();
+
+        QueryShape.Parameterized result = QueryShape.of(comparison);
+
+        assertSame(comparison.value(), result.parameters().getFirst());
+        assertSame(comparison.value(), ((Expr.Comparison) result.expr()).value());
+    }
+
+    @Test
+    void should_share_shape_between_literals() {
+        QueryShape first = QueryShape.of(parse("city eq: \"A\" && id IN: [1]")).shape();
+        QueryShape second = QueryShape.of(parse("city eq: \"B\" && id IN: [2, 3, 4]")).shape();
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    void should_bind_compiled_shape_to_new_literals() {
+        QueryCompiler<Map<String, Object>> compiler = new QueryCompiler<>(FieldAccessor.ofMap());
+        CompiledShape<Map<String, Object>> shape = compiler.compile(
+                QueryShape.of(parse("city eq: \"A\" && id IN: [1]")).shape());
+
+        Predicate<Map<String, Object>> a = shape.bind(List.of(literal("\"A\""), List.of(literal("1"), literal("2"))));
+        Predicate<Map<String, Object>> b = shape.bind(List.of(literal("\"B\""), List.of(literal("3"))));
+
+        assertTrue(a.test(Map.of("city", "A", "id", 2L)));
+        assertFalse(a.test(Map.of("city", "B", "id", 3L)));
+        assertTrue(b.test(Map.of("city", "B", "id", 3L)));
+        assertThrows(IllegalArgumentException.class, () -> shape.bind(List.of(literal("\"A\""))));
+        assertThrows(IllegalArgumentException.class, () -> shape.bind(List.of(literal("\"A\""), literal("1"))));
+        assertThrows(IllegalArgumentException.class, () -> shape.bind(List.of("\"A\"", List.of(literal("1")))));
+    }
+
+    @Test
+    void should_cache_per_shape() {
+        ShapeCache<Map<String, Object>> cache = new ShapeCache<>(10, new QueryCompiler<>(FieldAccessor.ofMap()));
+
+        for (int i = 0; i < 100; i++) {
+            Predicate<Map<String, Object>> predicate = cache.get("city eq: \"C" + i + "\" && id IN: [" + i + "]");
+            assertTrue(predicate.test(Map.of("city", "C" + i, "id", (long) i)));
+            assertFalse(predicate.test(Map.of("city", "C" + (i + 1), "id", (long) i)));
+        }
+
+        assertEquals(new CacheStats(99, 1, 0), cache.stats());
+    }
+
+    static Literal literal(String text) {
+        return Literal.of(text);
+    }
+
+    static Expr parse(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+}
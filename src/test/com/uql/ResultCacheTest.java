@@ -0,0 +1,117 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResultCacheTest {
+
+    final List<Map<String, Object>> rows = new ArrayList<>();
+    final AtomicLong version = new AtomicLong();
+    final AtomicInteger evaluations = new AtomicInteger();
+
+    ResultCache cache(long maximumBytes) {
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("city", "city" + i % 4);
+            row.put("age", (long) (i % 100));
+            rows.add(row);
+        }
+        IndexedRows<Map<String, Object>> indexed = new IndexedRows<>(rows, FieldAccessor.ofMap())
+                .withBitmapIndex("city");
+        return new ResultCache(expr -> {
+            evaluations.incrementAndGet();
+            return indexed.select(expr);
+        }, version::get, maximumBytes);
+    }
+
+    @Test
+    void should_evaluate_once_per_query() {
+        ResultCache cache = cache(1 << 20);
+
+        RowBitmap first = cache.select("city eq: \"city1\" && age gt: 50");
+        RowBitmap second = cache.select("city eq: \"city1\" && age gt: 50");
+
+        assertSame(first, second);
+        assertEquals(1, evaluations.get());
+        assertEquals(new CacheStats(1, 1, 0), cache.stats());
+    }
+
+    @Test
+    void should_share_results_of_normalized_queries() {
+        ResultCache cache = cache(1 << 20);
+
+        RowBitmap first = cache.select("city eq: \"city1\" && age gt: 50");
+        RowBitmap reordered = cache.select("age gt: 50   &&   city eq: \"city1\"");
+        RowBitmap parsed = cache.select(new Parser(new Tokenizer("(age gt: 50) && city eq: \"city1\"")).parseExpr());
+
+        assertSame(first, reordered);
+        assertSame(first, parsed);
+        assertEquals(1, evaluations.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void should_drop_results_when_the_version_moves() {
+        ResultCache cache = cache(1 << 20);
+        RowBitmap before = cache.select("age lt: 10");
+        cache.select("city eq: \"city2\"");
+
+        rows.get(50).put("age", 5L);
+        version.incrementAndGet();
+        RowBitmap after = cache.select("age lt: 10");
+
+        assertNotSame(before, after);
+        assertTrue(after.contains(50));
+        assertEquals(before.cardinality() + 1, after.cardinality());
+        assertEquals(3, evaluations.get());
+        assertEquals(1, cache.size());
+        assertSame(after, cache.select("age lt: 10"));
+    }
+
+    @Test
+    void should_stay_within_maximum_bytes() {
+        ResultCache cache = cache(4096);
+
+        for (int age = 0; age < 100; age++) {
+            cache.select("age eq: " + age);
+        }
+
+        assertTrue(cache.sizeInBytes() <= 4096, "bytes " + cache.sizeInBytes());
+        assertEquals(100 - cache.size(), cache.stats().evictions());
+    }
+
+    @Test
+    void should_evict_least_recently_used_results() {
+        ResultCache cache = cache(1 << 20);
+        long bytes = cache.select("age eq: 1").sizeInBytes();
+        cache = new ResultCache(new IndexedRows<>(rows, FieldAccessor.ofMap())::select, version::get,
+                3 * (bytes + 200));
+        RowBitmap hot = cache.select("age eq: 1");
+
+        for (int age = 2; age < 20; age++) {
+            cache.select("age eq: " + age);
+            assertSame(hot, cache.select("age eq: 1"));
+        }
+    }
+
+    @Test
+    void should_not_cache_errors() {
+        ResultCache cache = cache(1 << 20);
+
+        assertThrows(UQLParseException.class, () -> cache.select("city eq:"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeInBytes());
+    }
+}
@@ -0,0 +1,75 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowBitmapTest {
+
+    @Test
+    void should_match_bit_set_operations() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            // Mix sparse and dense containers
+            BitSet left = randomBits(random, random.nextInt(2) == 0 ? 0.01 : 0.5);
+            BitSet right = randomBits(random, random.nextInt(2) == 0 ? 0.01 : 0.5);
+            RowBitmap leftBitmap = bitmap(left);
+            RowBitmap rightBitmap = bitmap(right);
+
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+
+            assertArrayEquals(left.stream().toArray(), leftBitmap.toArray());
+            assertArrayEquals(and.stream().toArray(), leftBitmap.and(rightBitmap).toArray());
+            assertArrayEquals(or.stream().toArray(), leftBitmap.or(rightBitmap).toArray());
+            assertArrayEquals(andNot.stream().toArray(), leftBitmap.andNot(rightBitmap).toArray());
+            assertEquals(and.cardinality(), leftBitmap.and(rightBitmap).cardinality());
+        }
+    }
+
+    @Test
+    void should_not_change_once_built() {
+        RowBitmap.Builder builder = new RowBitmap.Builder().add(3).add(1).add(70_000);
+        RowBitmap bitmap = builder.build();
+
+        assertThrows(IllegalStateException.class, () -> builder.add(5));
+        assertArrayEquals(new int[]{1, 3, 70_000}, bitmap.toArray());
+        assertTrue(new RowBitmap.Builder().build().isEmpty());
+        assertTrue(RowBitmap.empty().isEmpty());
+    }
+
+    @Test
+    void should_add_rows_in_any_order() {
+        RowBitmap bitmap = RowBitmap.of(70_000, 5, 1, 70_000, 200_000, 3);
+
+        assertArrayEquals(new int[]{1, 3, 5, 70_000, 200_000}, bitmap.toArray());
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(4));
+        assertTrue(RowBitmap.empty().isEmpty());
+    }
+
+    static BitSet randomBits(Random random, double density) {
+        BitSet bits = new BitSet();
+        for (int i = 0; i < 300_000; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    static RowBitmap bitmap(BitSet bits) {
+        return RowBitmap.of(bits.stream().toArray());
+    }
+}
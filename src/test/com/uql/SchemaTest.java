@@ -0,0 +1,163 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchemaTest {
+
+    enum Status {ACTIVE, BLOCKED}
+
+    record Address(String city, String zip) {
+    }
+
+    record Person(String name, int age, double score, Status status, Address address) {
+    }
+
+    public static class Account {
+        public final long balance;
+        private final boolean premium;
+        private final Person owner;
+
+        Account(long balance, boolean premium, Person owner) {
+            this.balance = balance;
+            this.premium = premium;
+            this.owner = owner;
+        }
+
+        public boolean isPremium() {
+            return premium;
+        }
+
+        public Person getOwner() {
+            return owner;
+        }
+    }
+
+    static final List<Person> PEOPLE = List.of(
+            new Person("Ana", 34, 7.5, Status.ACTIVE, new Address("Campinas", "13010")),
+            new Person("Bruno", 19, 9.0, Status.BLOCKED, new Address("Santos", "11010")),
+            new Person("Carla", 52, 4.25, Status.ACTIVE, null));
+
+    static String matches(Schema<Person> schema, String uql) {
+        CompiledQuery<Person> query = new QueryCompiler<>(schema).compile(new Parser(new Tokenizer(uql)).parseExpr());
+        StringBuilder matched = new StringBuilder();
+        for (int i = 0; i < PEOPLE.size(); i++) {
+            if (query.test(PEOPLE.get(i))) {
+                matched.append(matched.isEmpty() ? "" : ",").append(i);
+            }
+        }
+        return matched.toString();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "age gt: 30                                   ; 0,2",
+            "score lte: 7.5                               ; 0,2",
+            "status eq: \"ACTIVE\"                          ; 0,2",
+            "address.city eq: \"Santos\"                    ; 1",
+            "address.zip IN: [\"13010\", \"11010\"]           ; 0,1",
+            "address.city not: \"Santos\"                   ; 0",
+            "name gt: \"B\" && address.zip lt: \"2\"          ; 1",
+    })
+    void should_filter_through_bound_keys(String uql, String expected) {
+        assertEquals(expected, matches(Schema.of(Person.class), uql), uql);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "city eq: \"Santos\"              ; Unknown key 'city'",
+            "address.country eq: \"BR\"       ; Unknown key 'address.country'",
+            "address..city eq: \"BR\"         ; Unknown key 'address..city'",
+            "age eq: \"34\"                   ; Key 'age' has type Integer, got string \"34\"",
+            "name IN: [\"Ana\", 3]            ; Key 'name' has type String, got number 3",
+            "address eq: \"Santos\"           ; Key 'address' has type Address, which does not compare with literals",
+    })
+    void should_reject_query_at_bind_time(String uql, String message) {
+        Expr expr = new Parser(new Tokenizer(uql)).parseExpr();
+        UQLParseException e = assertThrows(UQLParseException.class,
+                () -> new QueryCompiler<>(Schema.of(Person.class)).compile(expr));
+        assertEquals(message, e.getMessage());
+        assertThrows(UQLParseException.class,
+                () -> new ShapeCache<>(10, new QueryCompiler<>(Schema.of(Person.class))).get(expr));
+        assertThrows(UQLParseException.class,
+                () -> new BytecodeCompiler<>(Schema.of(Person.class)).compile(expr));
+    }
+
+    @Test
+    void should_number_slots_in_binding_order() {
+        Schema<Person> schema = Schema.of(Person.class);
+        schema.check(new Parser(new Tokenizer("address.zip eq: \"1\" && age gt: 3 || address.zip lt: \"2\"")).parseExpr());
+
+        assertEquals(List.of("address.zip", "age"), schema.slots().stream().map(Schema.Slot::path).toList());
+        assertEquals(1, schema.slot("age").slot());
+        assertEquals(int.class, schema.slot("age").type());
+        assertEquals(2, schema.slot("name").slot());
+    }
+
+    @Test
+    void should_generate_direct_getters() {
+        Schema.Slot slot = Schema.of(Person.class).slot("name");
+
+        assertNotEquals(Schema.class, slot.getter().getClass().getNestHost());
+        assertEquals("Ana", slot.getter().apply(PEOPLE.get(0)));
+    }
+
+    @Test
+    void should_read_pojo_getters_and_public_fields() {
+        Schema<Account> schema = Schema.of(Account.class);
+        Account account = new Account(250, true, PEOPLE.get(1));
+
+        assertEquals(250L, schema.get(account, "balance"));
+        assertEquals(true, schema.get(account, "premium"));
+        assertEquals("Santos", schema.get(account, "owner.address.city"));
+        assertEquals(null, schema.get(new Account(0, false, PEOPLE.get(2)), "owner.address.city"));
+        assertThrows(UQLParseException.class, () -> schema.slot("hashCode"));
+        assertThrows(UQLParseException.class, () -> schema.slot("class"));
+    }
+
+    record Birth(String name, LocalDate born) {
+    }
+
+    @Test
+    void should_read_members_of_jdk_types() {
+        Schema<Birth> schema = Schema.of(Birth.class);
+        Birth birth = new Birth("Ana", LocalDate.of(1990, 5, 17));
+
+        assertEquals(1990, schema.get(birth, "born.year"));
+        assertEquals(3, schema.get(birth, "name.length"));
+        assertTrue(new QueryCompiler<>(schema)
+                .compile(new Parser(new Tokenizer("born.year lt: 2000 && name.length eq: 3")).parseExpr())
+                .test(birth));
+        assertThrows(UQLParseException.class, () -> schema.slot("born.nothing"));
+    }
+
+    @Test
+    void should_read_array_rows_by_slot() {
+        Schema<Object[]> schema = Schema.ofArray().withColumn("city", String.class).withColumn("age", Long.class);
+        CompiledQuery<Object[]> query = new QueryCompiler<>(schema)
+                .compile(new Parser(new Tokenizer("city eq: \"Santos\" && age gte: 18")).parseExpr());
+
+        assertTrue(query.test(new Object[]{"Santos", 18L}));
+        assertFalse(query.test(new Object[]{"Santos", 17L}));
+        assertEquals(1, schema.slot("age").slot());
+        assertThrows(UQLParseException.class, () -> schema.slot("name"));
+        assertThrows(UQLParseException.class, () -> schema.check(new Parser(new Tokenizer("age eq: \"x\"")).parseExpr()));
+    }
+
+    @Test
+    void should_reject_duplicate_column() {
+        Schema<Object[]> schema = Schema.ofArray().withColumn("city", String.class);
+        assertThrows(IllegalArgumentException.class, () -> schema.withColumn("city", String.class));
+        assertThrows(IllegalArgumentException.class, () -> Schema.of(Person.class).withColumn("city", String.class));
+    }
+}
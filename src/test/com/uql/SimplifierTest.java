@@ -0,0 +1,124 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimplifierTest {
+
+    static Expr expr(String uql) {
+        return new Parser(new Tokenizer(uql)).parseExpr();
+    }
+
+    static String simplify(String uql) {
+        Simplifier.Result result = new Simplifier(Set.of("id")).simplify(expr(uql));
+        return result.expr() == null ? result.truth().name() : result.expr().toString();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "x gt: 1 && x gt: 5                          ; x gt: 5",
+            "x gte: 5 && x gt: 5                         ; x gt: 5",
+            "x lt: 5 && x lte: 5 && x lt: 7              ; x lt: 5",
+            "x gt: 1 && x lt: 9 && x gte: 3              ; x gte: 3 && x lt: 9",
+            "x gte: 3 && x lte: 3                        ; x eq: 3",
+            "x gt: \"b\" && x gt: \"a\"                  ; x gt: \"b\"",
+            "x gt: 9 && x gt: 10                         ; x gt: 9 && x gt: 10",
+            "a eq: 1 || a eq: 2 || a eq: 3               ; a IN: [1, 2, 3]",
+            "a eq: 1 || b eq: 1 || a IN: [2, 1]          ; a IN: [1, 2] || b eq: 1",
+            "a eq: 1 || a eq: \"x\"                      ; a IN: [1, \"x\"]",
+            "a IN: [1, 1]                                ; a eq: 1",
+            "a eq: 1 && a eq: 1                          ; a eq: 1",
+            "(a eq: 1 || b eq: 2) && (b eq: 2 || a eq: 1) ; a eq: 1 || b eq: 2",
+            "a eq: 1 && a gt: 0 && a not: 2 && a IN: [1, 5] ; a eq: 1",
+            "a eq: 1 && a eq: \"1\"                      ; a eq: 1 && a eq: \"1\"",
+            "a lt: 5 || a gt: 5                          ; a not: 5",
+            "a gt: 5 || a gt: 3 || a eq: 4 || a eq: 1    ; a eq: 1 || a gt: 3",
+            "a not: 5 || a eq: 4                         ; a not: 5",
+            "a eq: 1 || a not: 1                         ; a eq: 1 || a not: 1",
+            "a eq: 1 && (a eq: 2 || b eq: 3)             ; a eq: 1 && (a eq: 2 || b eq: 3)",
+    })
+    void should_simplify(String uql, String expected) {
+        assertEquals(expected, simplify(uql));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "a eq: 1 && a eq: 2",
+            "a eq: \"x\" && a eq: \"y\"",
+            "x gt: 5 && x lt: 3",
+            "x gt: 5 && x lte: 5",
+            "a eq: 1 && a not: 1",
+            "a eq: 7 && a IN: [1, 2]",
+            "a eq: 1 && a gt: 1",
+            "(a eq: 1 && a eq: 2) || (b eq: 1 && b lt: 0)",
+            "c eq: 1 && (a eq: 1 && a eq: 2 || b gt: 3 && b lt: 2)",
+    })
+    void should_detect_contradictions(String uql) {
+        assertEquals("FALSE", simplify(uql));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "id eq: 1 || id not: 1",
+            "id lt: 5 || id gte: 5",
+            "id lt: 5 || id gt: 4",
+            "id not: 1 || id not: 2",
+            "(id eq: 1 || id not: 1) && (id lte: 3 || id gt: 3)",
+    })
+    void should_detect_tautologies_of_non_null_keys(String uql) {
+        assertEquals("TRUE", simplify(uql));
+    }
+
+    @Test
+    void should_simplify_node_tree() {
+        Simplifier.Result result = new Simplifier().simplify(new Parser(new Tokenizer("a eq: 1 && a eq: 2")).parse());
+
+        assertTrue(result.alwaysFalse());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x gt: 1 && x gt: 5",
+            "x gt: 9 && x gt: 10 && x lt: 100",
+            "x gte: 3 && x lte: 3",
+            "x eq: 3 || x eq: 4 || x eq: \"3\"",
+            "x lt: 5 || x gt: 5",
+            "x gt: 5 || x gt: 3 || x eq: 4 || x eq: 1",
+            "x not: 5 || x eq: 4",
+            "x eq: 1 && x gt: 0 && x not: 2",
+            "x gt: \"3\" && x lt: \"5\"",
+    })
+    void should_match_same_rows(String uql) {
+        List<Object> values = new ArrayList<>(List.of(
+                -1L, 0L, 1L, 3L, 4L, 5L, 9L, 10L, 11L, 3.0, 4.5, 5, new BigDecimal("5.0"),
+                "1", "3", "30", "4", "5", "95", "100", "a"));
+        values.add(null);
+        Expr expr = expr(uql);
+        Simplifier.Result result = new Simplifier().simplify(expr);
+        QueryCompiler<Map<String, Object>> compiler = new QueryCompiler<>(FieldAccessor.ofMap());
+
+        for (Object value : values) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("x", value);
+            boolean expected = compiler.compile(expr).test(row);
+            boolean actual = switch (result.truth()) {
+                case TRUE -> true;
+                case FALSE -> false;
+                case UNKNOWN -> compiler.compile(result.expr()).test(row);
+            };
+            assertEquals(expected, actual, uql + " with " + value);
+        }
+    }
+}
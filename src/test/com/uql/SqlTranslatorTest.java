@@ -0,0 +1,79 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SqlTranslatorTest {
+
+    final SqlTranslator translator = new SqlTranslator(Map.of(
+            "city", "address.city",
+            "number", "address.number",
+            "zipCode", "address.zip_code"));
+
+    SqlTranslator.SqlQuery translate(String uql) {
+        return translator.translate(new Parser(new Tokenizer(uql)).parseExpr());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "city eq: \"São João\"                     ; address.city = ?",
+            "number not: 10                           ; address.number <> ?",
+            "number gte: 10 && number lt: 20           ; address.number >= ? AND address.number < ?",
+            "city eq: \"A\" || number gt: 1 && zipCode lte: 3 ; address.city = ? OR (address.number > ? AND address.zip_code <= ?)",
+            "(city eq: \"A\" || number gt: 1) && zipCode lte: 3 ; (address.city = ? OR address.number > ?) AND address.zip_code <= ?",
+            "number IN: [1]                           ; address.number IN (?)",
+            "number IN: [1, 2, 3]                     ; address.number IN (?, ?, ?, ?)",
+            "number IN: [1, 2, 3, 4, 5]               ; address.number IN (?, ?, ?, ?, ?, ?, ?, ?)",
+    })
+    void should_translate_to_where_clause(String uql, String expected) {
+        assertEquals(expected, translate(uql).where());
+    }
+
+    @Test
+    void should_produce_same_sql_for_same_shape() {
+        SqlTranslator.SqlQuery first = translate("city eq: \"A\" && number IN: [1, 2, 3]");
+        SqlTranslator.SqlQuery second = translate("city eq: \"B\" && number IN: [4, 5, 6, 7]");
+
+        assertEquals(first.where(), second.where());
+        assertEquals(List.of("A", 1L, 2L, 3L, 3L), first.parameters());
+        assertEquals(List.of("B", 4L, 5L, 6L, 7L), second.parameters());
+    }
+
+    @Test
+    void should_bind_typed_parameters() throws Exception {
+        List<String> calls = new ArrayList<>();
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    calls.add(method.getName() + "(" + args[0] + ", " + args[1] + ")");
+                    return null;
+                });
+
+        int next = translate("city eq: \"10\" || number eq: 10 || number eq: 99999999999999999999")
+                .bind(statement, 2);
+
+        assertEquals(5, next);
+        assertEquals(List.of(
+                "setString(2, 10)",
+                "setLong(3, 10)",
+                "setBigDecimal(4, " + new BigDecimal("99999999999999999999") + ")"), calls);
+    }
+
+    @Test
+    void should_reject_keys_outside_whitelist() {
+        UQLParseException e = assertThrows(UQLParseException.class, () -> translate("password eq: \"x\""));
+
+        assertEquals("Unknown key 'password'", e.getMessage());
+    }
+}
@@ -1,11 +1,12 @@
 package com.uql;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
-import java.util.Stack;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -14,17 +15,17 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TokenizerTest {
 
-    Stack<Token> expectedTokens;
+    List<Token> expectedTokens;
 
     @ParameterizedTest
     @MethodSource("queries_source")
-    void tokenize(String qsln, Stack<Token> expectedTokens) {
+    void tokenize(String qsln, List<Token> expectedTokens) {
 
         this.expectedTokens = expectedTokens;
 
         Tokenizer tokenizer = new Tokenizer(qsln);
         tokenizer.tokenize();
-        Stack<Token> generatedTokens = tokenizer.tokens;
+        List<Token> generatedTokens = tokenizer.tokens;
 
         assertEquals(generatedTokens.size(), expectedTokens.size());
         assertTrue(hasSameTokens(generatedTokens));
@@ -42,7 +43,108 @@ public class TokenizerTest {
         });
     }
 
-    boolean hasSameTokens(Stack<Token> generatedTokens) {
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"São João", // the literal is never closed
+            "city eq: #", // # is not part of the language
+    })
+    void throw_error_on_malformed_query(String qsln) {
+        assertThrows(UQLLexicalException.class, () -> {
+            Tokenizer tokenizer = new Tokenizer(qsln);
+            tokenizer.tokenize();
+        });
+    }
+
+    @Test
+    void next_token_pulls_one_token_at_a_time() {
+        Tokenizer tokenizer = new Tokenizer("city eq: \"Sao Paulo\"");
+
+        assertEquals(new Token("city", TokenType.IDENTIFIER), tokenizer.nextToken());
+        assertEquals(new Token("eq:", TokenType.COMPARISON_OPERATOR), tokenizer.nextToken());
+        assertEquals(new Token("\"Sao Paulo\"", TokenType.LITERAL), tokenizer.nextToken());
+        assertEquals(TokenType.EOF, tokenizer.nextToken().type);
+        assertEquals(TokenType.EOF, tokenizer.nextToken().type);
+        assertTrue(tokenizer.tokens.isEmpty());
+    }
+
+    @Test
+    void next_reports_token_position_without_creating_tokens() {
+        StringBuilder query = new StringBuilder("  age gte: 18");
+        Tokenizer tokenizer = new Tokenizer(query);
+
+        assertEquals(TokenType.IDENTIFIER, tokenizer.next());
+        assertEquals(2, tokenizer.tokenStart());
+        assertEquals(3, tokenizer.tokenLength());
+        assertEquals(TokenType.COMPARISON_OPERATOR, tokenizer.next());
+        assertEquals(6, tokenizer.tokenStart());
+        assertEquals(4, tokenizer.tokenLength());
+        assertEquals(TokenType.LITERAL, tokenizer.next());
+        assertEquals(11, tokenizer.tokenStart());
+        assertEquals(2, tokenizer.tokenLength());
+        assertEquals(TokenType.EOF, tokenizer.next());
+    }
+
+    @Test
+    void token_is_a_view_over_the_query() {
+        String query = "city eq: \"Sao Paulo\"";
+        Token token = new Tokenizer(query).nextToken();
+
+        assertEquals(0, token.start());
+        assertEquals(4, token.length());
+        assertTrue(token.contentEquals("city"));
+        assertEquals(null, token.value);
+        assertEquals("city", token.value());
+        assertEquals(new Token("city", TokenType.IDENTIFIER), token);
+        assertEquals(new Token("city", TokenType.IDENTIFIER).hashCode(), token.hashCode());
+    }
+
+    @Test
+    void tokenize_long_literal() {
+        String value = "\"" + "a".repeat(100_000) + "\"";
+        Tokenizer tokenizer = new Tokenizer("city eq: " + value);
+        tokenizer.tokenize();
+
+        assertEquals(3, tokenizer.tokens.size());
+        assertEquals(new Token(value, TokenType.LITERAL), tokenizer.tokens.get(2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-5", "12.75", "-0.5", "\"say \\\"hi\\\"\"", "\"back\\\\slash\\\\\""})
+    void tokenize_signed_decimal_and_escaped_literals(String literal) {
+        Tokenizer tokenizer = new Tokenizer("price gt: " + literal + " && a eq: 1");
+        tokenizer.tokenize();
+
+        assertEquals(7, tokenizer.tokens.size());
+        assertEquals(new Token(literal, TokenType.LITERAL), tokenizer.tokens.get(2));
+    }
+
+    @Test
+    void tokenize_minus_not_followed_by_digit_as_identifier() {
+        Tokenizer tokenizer = new Tokenizer("-x eq: 1.");
+        tokenizer.tokenize();
+
+        assertEquals(new Token("-x", TokenType.IDENTIFIER), tokenizer.tokens.get(0));
+        assertEquals(new Token("1", TokenType.LITERAL), tokenizer.tokens.get(2));
+        assertEquals(new Token(".", TokenType.IDENTIFIER), tokenizer.tokens.get(3));
+    }
+
+    @Test
+    void tokenize_long_in_list() {
+        StringBuilder query = new StringBuilder("id IN: [1");
+        for (int i = 2; i <= 50_000; i++) {
+            query.append(", ").append(i);
+        }
+        query.append("]");
+        Tokenizer tokenizer = new Tokenizer(query.toString());
+        tokenizer.tokenize();
+
+        // identifier, operator, brackets, literals and the commas between them
+        assertEquals(4 + 50_000 + 49_999, tokenizer.tokens.size());
+        assertEquals(new Token("50000", TokenType.LITERAL),
+                tokenizer.tokens.get(tokenizer.tokens.size() - 2));
+    }
+
+    boolean hasSameTokens(List<Token> generatedTokens) {
         String generated = String.join("", generatedTokens.stream()
                 .map(Token::toString).toList());
         String expected = String.join("", expectedTokens.stream()
@@ -65,85 +167,79 @@ public class TokenizerTest {
 
     static Object[] query_scenario_9() {
         var query = "city eq: \"Sao Paulo\"";
-        var tokens = new Stack<Token>() {{
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"Sao Paulo\"", TokenType.LITERAL));
-        }};
+        var tokens = List.of(
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"Sao Paulo\"", TokenType.LITERAL));
         return new Object[]{query, tokens};
     }
 
     static Object[] query_scenario_8() {
         var query = "city eq: \"São João\" || neighborhood not: \"Centro\"";
-        var tokens = new Stack<>() {{
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"São João\"", TokenType.LITERAL));
-            add(new Token("||", TokenType.LOGICAL_OPERATOR));
-            add(new Token("neighborhood", TokenType.IDENTIFIER));
-            add(new Token("not:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"Centro\"", TokenType.LITERAL));
-        }};
+        var tokens = List.of(
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"São João\"", TokenType.LITERAL),
+                new Token("||", TokenType.LOGICAL_OPERATOR),
+                new Token("neighborhood", TokenType.IDENTIFIER),
+                new Token("not:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"Centro\"", TokenType.LITERAL));
         return new Object[]{query, tokens};
     }
 
     static Object[] query_scenario_7() {
         var query = "( number gt: \"345\" )";
-        var tokens = new Stack<>() {{
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("number", TokenType.IDENTIFIER));
-            add(new Token("gt:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"345\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-        }};
+        var tokens = List.of(
+                new Token("(", TokenType.SEPARATOR),
+                new Token("number", TokenType.IDENTIFIER),
+                new Token("gt:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"345\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR));
         return new Object[]{query, tokens};
     }
 
     static Object[] query_scenario_6() {
         var query = "( city eq: \"São João\" ) || ( neighborhood not: \"Centro\" )";
-        var tokens = new Stack<>() {{
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"São João\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-            add(new Token("||", TokenType.LOGICAL_OPERATOR));
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("neighborhood", TokenType.IDENTIFIER));
-            add(new Token("not:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"Centro\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-        }};
+        var tokens = List.of(
+                new Token("(", TokenType.SEPARATOR),
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"São João\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR),
+                new Token("||", TokenType.LOGICAL_OPERATOR),
+                new Token("(", TokenType.SEPARATOR),
+                new Token("neighborhood", TokenType.IDENTIFIER),
+                new Token("not:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"Centro\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR));
         return new Object[]{query, tokens};
     }
 
     static Object[] query_scenario_5() {
         var query = "( city eq: \"São João\" ) && ( neighborhood not: \"Centro\" )";
-        var tokens = new Stack<>() {{
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"São João\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-            add(new Token("&&", TokenType.LOGICAL_OPERATOR));
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("neighborhood", TokenType.IDENTIFIER));
-            add(new Token("not:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"Centro\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-        }};
+        var tokens = List.of(
+                new Token("(", TokenType.SEPARATOR),
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"São João\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR),
+                new Token("&&", TokenType.LOGICAL_OPERATOR),
+                new Token("(", TokenType.SEPARATOR),
+                new Token("neighborhood", TokenType.IDENTIFIER),
+                new Token("not:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"Centro\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR));
         return new Object[]{query, tokens};
     }
 
     static Object[] query_scenario_4() {
         var query = "( city eq: \"São João\" )";
-        var tokens = new Stack<>() {{
-            add(new Token("(", TokenType.SEPARATOR));
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("\"São João\"", TokenType.LITERAL));
-            add(new Token(")", TokenType.SEPARATOR));
-        }};
+        var tokens = List.of(
+                new Token("(", TokenType.SEPARATOR),
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR),
+                new Token("\"São João\"", TokenType.LITERAL),
+                new Token(")", TokenType.SEPARATOR));
         return new Object[]{query, tokens};
     }
 
@@ -157,24 +253,22 @@ public class TokenizerTest {
         return new Object[]{query, query_scenario_2_tokens()};
     }
 
-    static Stack<Token> query_scenario_2_tokens() {
-        return new Stack<>() {{
-            add(new Token("city", TokenType.IDENTIFIER));
-            add(new Token("IN:", TokenType.COMPARISON_OPERATOR));
-            add(new Token("[", TokenType.SEPARATOR));
-            add(new Token("\"São João\"", TokenType.LITERAL));
-            add(new Token(",", TokenType.SEPARATOR));
-            add(new Token("234", TokenType.LITERAL));
-            add(new Token("]", TokenType.SEPARATOR));
-        }};
+    static List<Token> query_scenario_2_tokens() {
+        return List.of(
+                new Token("city", TokenType.IDENTIFIER),
+                new Token("IN:", TokenType.COMPARISON_OPERATOR),
+                new Token("[", TokenType.SEPARATOR),
+                new Token("\"São João\"", TokenType.LITERAL),
+                new Token(",", TokenType.SEPARATOR),
+                new Token("234", TokenType.LITERAL),
+                new Token("]", TokenType.SEPARATOR));
     }
 
     static Object[] query_scenario_1() {
         var query = "city-district eq:";
-        var tokens = new Stack<Token>() {{
-            add(new Token("city-district", TokenType.IDENTIFIER));
-            add(new Token("eq:", TokenType.COMPARISON_OPERATOR));
-        }};
+        var tokens = List.of(
+                new Token("city-district", TokenType.IDENTIFIER),
+                new Token("eq:", TokenType.COMPARISON_OPERATOR));
         return new Object[]{query, tokens};
     }
 }
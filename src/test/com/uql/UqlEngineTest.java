@@ -0,0 +1,70 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UqlEngineTest {
+
+    static final UqlEngine ENGINE = new UqlEngine();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city eq: \"Berlin\"",
+            "city eq: \"Berlin\" && (age gt: 30 || age lt: 10)",
+            "(id IN: [1, 2, 3] || status not: \"ok\") && age gte: 18",
+    })
+    void should_ParseLikeTheParser(String query) {
+        assertEquals(new Parser(new Tokenizer(query)).parseExpr(), ENGINE.parse(query));
+        assertEquals(new Parser(new Tokenizer(query)).parseExpr(), ENGINE.parse(query));
+    }
+
+    @Test
+    void should_TokenizeLikeTheTokenizer() {
+        String query = "city eq: \"Berlin\" && id IN: [1, 2]";
+        Tokenizer tokenizer = new Tokenizer(query);
+        tokenizer.tokenize();
+        assertEquals(tokenizer.tokens, ENGINE.tokenize(query));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "city eq:", "city eq: 1 age"})
+    void should_KeepWorking_When_QueryIsInvalid(String query) {
+        assertThrows(UQLParseException.class, () -> ENGINE.parse(query));
+        assertEquals(new Expr.Comparison("age", ComparisonOperator.GT, "30"), ENGINE.parse("age gt: 30"));
+    }
+
+    @Test
+    void should_ThrowLexicalError_When_CharacterIsInvalid() {
+        assertThrows(UQLLexicalException.class, () -> ENGINE.parse("city eq: $"));
+    }
+
+    @Test
+    void should_ParseConcurrently_When_CalledFromManyVirtualThreads() throws Exception {
+        UqlEngine engine = new UqlEngine(2);
+        List<Future<Expr>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10_000; i++) {
+                String query = "id eq: " + i + " && city eq: \"c" + i + "\"";
+                results.add(executor.submit(() -> engine.parse(query)));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("id eq: " + i + " && city eq: \"c" + i + "\"", results.get(i).get().toString());
+        }
+    }
+
+    @Test
+    void should_RejectPoolSmallerThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new UqlEngine(0));
+    }
+}
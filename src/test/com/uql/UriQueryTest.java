@@ -0,0 +1,101 @@
+package com.uql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UriQueryTest {
+
+    @Test
+    void should_read_key_and_expression() {
+        UriQuery query = UriQuery.of(bytes("filter=city%20eq%3A%20%22S%C3%A3o%20Jo%C3%A3o%22"));
+
+        assertEquals("filter", query.key());
+        assertEquals("city eq: \"São João\"", query.toString());
+    }
+
+    @Test
+    void should_find_parameter_among_others() {
+        String uql = "(city eq: \"São João\") && (number gte: 123)";
+        String raw = "page=2&q%20x=1&filter=" + URLEncoder.encode(uql, StandardCharsets.UTF_8) + "&size=10";
+
+        UriQuery query = UriQuery.parameter(bytes(raw), "filter");
+
+        assertEquals("filter", query.key());
+        assertEquals(uql, query.toString());
+        assertEquals("q x", UriQuery.parameter(bytes(raw), "q x").key());
+        assertNull(UriQuery.parameter(bytes(raw), "sort"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "city IN: [\"São João\", 234] || zip eq: \"13860123\"",
+            "(city eq: \"😀 Paulo\") && number eq: 123",
+    })
+    void should_tokenize_like_decoded_string(String uql) {
+        byte[] raw = bytes("filter=" + URLEncoder.encode(uql, StandardCharsets.UTF_8));
+        Tokenizer expected = new Tokenizer(uql);
+        expected.tokenize();
+
+        Tokenizer tokenizer = new Tokenizer(UriQuery.of(raw));
+        tokenizer.tokenize();
+
+        assertEquals(expected.tokens, tokenizer.tokens);
+        assertEquals(expected.tokens.toString(), tokenizer.tokens.toString());
+    }
+
+    @Test
+    void should_read_long_expression_from_byte_buffer() {
+        StringBuilder uql = new StringBuilder("id IN: [\"😀\"");
+        for (int i = 0; i < 5_000; i++) {
+            uql.append(", \"São ").append(i).append("\"");
+        }
+        uql.append("]");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(uql.length() * 4);
+        buffer.put(bytes("filter=" + uql.toString().replace(' ', '+')));
+        buffer.flip();
+
+        UriQuery query = UriQuery.of(buffer);
+
+        assertEquals(uql.length(), query.length());
+        assertEquals(uql.toString(), query.toString());
+        for (int i = uql.length() - 1; i >= 0; i -= 7) {
+            assertEquals(uql.charAt(i), query.charAt(i));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "filter=city%2",
+            "filter=city%G0",
+            "filter=%C3%28",
+            "filter=%E2%82",
+            "filter=%C0%A2",
+            "filter=%C0%A6%C0%A6",
+            "filter=%E0%80%A2",
+            "filter=%F0%80%80%A2",
+            "filter=%C1%BF",
+            "filter=%F5%80%80%80",
+            "filter=%FF",
+    })
+    void should_reject_malformed_bytes(String raw) {
+        assertThrows(UQLLexicalException.class, () -> UriQuery.of(bytes(raw)));
+    }
+
+    @Test
+    void should_reject_parameter_without_key() {
+        assertThrows(UQLParseException.class, () -> UriQuery.of(bytes("city eq: 1")));
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -3,10 +3,10 @@
 shopt -s globstar
 
 # Compiles production code
-javac -d out/prd src/app/**/*.java
+javac --release 21 -encoding UTF-8 -d out/prd src/app/**/*.java
 
 # Compiles test code
-javac -cp "lib/junit-platform-console-standalone-6.0.1.jar;out/prd" \
+javac --release 21 -encoding UTF-8 -cp "lib/junit-platform-console-standalone-6.0.1.jar;out/prd" \
 -d out/test src/test/**/*.java
 
 # Runs JUnit